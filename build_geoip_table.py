@@ -0,0 +1,84 @@
+#!/usr/bin/env python3
+"""
+Build the binary GeoIP range table read by the Java GeoIpService.
+Input: CSV rows of either
+    network,lat,lon              (IPv4 CIDR, e.g. GeoLite2 City Blocks exported to three columns)
+    start_ip,end_ip,lat,lon      (dotted quads or integers)
+Lines starting with '#', header rows and non-IPv4 rows are skipped.
+Output: "GEO1", uint32 count, then count x (uint32 start, uint32 end, float32 lat, float32 lon),
+little-endian, sorted by start with overlapping ranges dropped.
+Usage: python build_geoip_table.py geo.csv geoip.bin
+"""
+import csv
+import ipaddress
+import os
+import struct
+import sys
+
+MAGIC = b'GEO1'
+_HEADER = struct.Struct('<4sI')
+_RECORD = struct.Struct('<IIff')
+
+
+def parse_address(text):
+    text = text.strip()
+    if text.isdigit():
+        return int(text)
+    return int(ipaddress.IPv4Address(text))
+
+
+def parse_row(row):
+    """Return (start, end, lat, lon) or None for rows that are not IPv4 ranges."""
+    try:
+        if len(row) == 3:
+            network = ipaddress.IPv4Network(row[0].strip(), strict=False)
+            return int(network.network_address), int(network.broadcast_address), float(row[1]), float(row[2])
+        if len(row) >= 4:
+            return parse_address(row[0]), parse_address(row[1]), float(row[2]), float(row[3])
+    except ValueError:
+        pass
+    return None
+
+
+def build(csv_path, out_path):
+    ranges = []
+    skipped = 0
+    with open(csv_path, newline='') as f:
+        for row in csv.reader(f):
+            if not row or row[0].lstrip().startswith('#'):
+                continue
+            parsed = parse_row(row)
+            if parsed is None or parsed[0] > parsed[1]:
+                skipped += 1
+                continue
+            ranges.append(parsed)
+
+    ranges.sort(key=lambda r: (r[0], r[1]))
+    records = []
+    overlaps = 0
+    for start, end, lat, lon in ranges:
+        if records and start <= records[-1][1]:
+            overlaps += 1
+            continue
+        records.append((start, end, lat, lon))
+
+    # Write next to the target and rename, so a running app never maps a half-written file
+    tmp_path = out_path + '.tmp'
+    with open(tmp_path, 'wb') as f:
+        f.write(_HEADER.pack(MAGIC, len(records)))
+        for record in records:
+            f.write(_RECORD.pack(*record))
+    os.replace(tmp_path, out_path)
+
+    print(f"Wrote {len(records)} ranges to {out_path} ({skipped} rows skipped, {overlaps} overlapping ranges dropped)")
+
+
+def main():
+    if len(sys.argv) != 3:
+        print(__doc__)
+        sys.exit(1)
+    build(sys.argv[1], sys.argv[2])
+
+
+if __name__ == "__main__":
+    main()
@@ -22,7 +22,13 @@ CREATE TABLE IF NOT EXISTS users (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
--- Seed default admin user (password: admin123, BCrypt hashed)
+-- ROLE_ADMIN (e.g. blocklist import) is granted only by this flag, never by username.
+-- Promote an operator explicitly: UPDATE users SET is_admin = TRUE WHERE username = '...';
+ALTER TABLE users ADD COLUMN IF NOT EXISTS is_admin BOOLEAN NOT NULL DEFAULT FALSE;
+
+-- Seed default admin user (password: admin123, BCrypt hashed at cost 10;
+-- rehashed at the calibrated cost on its first successful login).
+-- Its password is public, so it is NOT flagged is_admin.
 INSERT INTO users (username, password, enabled) VALUES
     ('admin', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy', TRUE)
 ON CONFLICT (username) DO NOTHING;
@@ -39,6 +45,8 @@ CREATE TABLE IF NOT EXISTS user_sessions (
 
 CREATE INDEX IF NOT EXISTS idx_user_sessions_ip ON user_sessions(ip_address);
 CREATE INDEX IF NOT EXISTS idx_user_sessions_username ON user_sessions(username);
+-- Per-user session limit: a user's sessions are read oldest first on every login
+CREATE INDEX IF NOT EXISTS idx_user_sessions_username_created ON user_sessions(username, created_at);
 
 -- ============================================================
 -- Spring Session JDBC tables (managed by Spring Session)
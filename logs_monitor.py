@@ -8,25 +8,25 @@ import json
 import time
 from datetime import datetime, timedelta
 from collections import defaultdict
-from kafka import KafkaConsumer
-import psycopg2
-from psycopg2.extras import RealDictCursor
+from itertools import islice
+from kafka import KafkaConsumer, KafkaProducer, TopicPartition
 import math
+from detector_checkpoint import CheckpointStore, Reader, SeekToCheckpointListener, Writer, gc_paused
 # Configuration
 KAFKA_BROKER = 'localhost:9092'
 KAFKA_TOPIC = 'auth-events'
 KAFKA_GROUP_ID = 'threat-detection-tool'
-DB_CONFIG = {
-    'host': 'localhost',
-    'port': 5432,
-    'database': 'security_db',
-    'user': 'admin',
-    'password': 'password'
-}
+# Block decisions are written to blocked_ips by the Java block-decision service,
+# which coalesces them and revokes sessions in batches
+BLOCK_DECISIONS_TOPIC = 'block-decisions'
+BLOCK_SOURCE = 'logs-monitor'
 # Threat Detection Parameters
 FAILURE_THRESHOLD = 5  # More than 5 failures
 TIME_WINDOW_SECONDS = 60  # Within 60 seconds
 BLOCK_DURATION_MINUTES = 15  # Block for 15 minutes
+# Checkpointing: window state is snapshotted with the consumed offsets and restored on restart
+CHECKPOINT_PATH = 'checkpoints/logs_monitor.ckpt'
+CHECKPOINT_INTERVAL_SECONDS = 30
 class ThreatDetectionEngine:
     """
     The Logs Monitor: Analyzes login patterns and blocks malicious IPs.
@@ -37,31 +37,34 @@ class ThreatDetectionEngine:
         self.failed_attempts = defaultdict(list)
         # Track last successful login per username: { username: { ip, ts, lat, lon } }
         self.last_success_by_user = {}
+        # Next offset to consume per partition, saved alongside the window state
+        self.offsets = {}
+        self.checkpoints = CheckpointStore(CHECKPOINT_PATH, CHECKPOINT_INTERVAL_SECONDS)
+        checkpoint = self.checkpoints.load()
+        if checkpoint is not None:
+            self.offsets, sections = checkpoint
+            with gc_paused():
+                self.restore_state(sections)
         # Initialize Kafka Consumer
         self.consumer = KafkaConsumer(
-            KAFKA_TOPIC,
             bootstrap_servers=KAFKA_BROKER,
             group_id=KAFKA_GROUP_ID,
-            auto_offset_reset='latest',  # Start from latest messages
+            auto_offset_reset='latest',  # Start from latest messages (when there is no checkpoint)
             enable_auto_commit=True,
             value_deserializer=lambda m: json.loads(m.decode('utf-8'))
         )
-        # Database connection
-        self.db_conn = None
-        self.connect_to_db()
+        self.consumer.subscribe([KAFKA_TOPIC], listener=SeekToCheckpointListener(self.consumer, dict(self.offsets)))
+        # Producer for block decisions
+        self.producer = KafkaProducer(
+            bootstrap_servers=KAFKA_BROKER,
+            key_serializer=lambda k: k.encode('utf-8'),
+            value_serializer=lambda v: json.dumps(v).encode('utf-8')
+        )
         print("Threat monitor initialized and listening...")
         print(f"   - Kafka Topic: {KAFKA_TOPIC}")
         print(f"   - Threshold: {FAILURE_THRESHOLD} failures in {TIME_WINDOW_SECONDS}s")
         print(f"   - Block Duration: {BLOCK_DURATION_MINUTES} minutes")
         print("-" * 60)
-    def connect_to_db(self):
-        """Establish PostgreSQL connection."""
-        try:
-            self.db_conn = psycopg2.connect(**DB_CONFIG)
-            print("Connected to PostgreSQL")
-        except Exception as e:
-            print(f"Database connection failed: {e}")
-            raise
     def process_events(self):
         """
         Main event processing loop.
@@ -73,6 +76,55 @@ class ThreatDetectionEngine:
                 self.analyze_event(event)
             except Exception as e:
                 print(f"Error processing event: {e}")
+            self.offsets[TopicPartition(message.topic, message.partition)] = message.offset + 1
+            if self.checkpoints.due():
+                self.save_checkpoint()
+    def save_checkpoint(self, background=True):
+        """Snapshot window state together with the offsets it reflects."""
+        # Encoding copies the state here; framing and fsync run on the store's writer thread
+        try:
+            with gc_paused():
+                sections = self.snapshot_state()
+            if background:
+                self.checkpoints.save_in_background(self.offsets, sections)
+            else:
+                self.checkpoints.wait()
+                self.checkpoints.save(self.offsets, sections)
+        except Exception as e:
+            print(f"Failed to save checkpoint: {e}")
+    def snapshot_state(self):
+        """Encode per-IP failure windows and per-username last successes."""
+        cutoff = time.time() - TIME_WINDOW_SECONDS
+        live = [(ip, ts) for ip, ts in self.failed_attempts.items() if ts and ts[-1] >= cutoff]
+        failures = Writer()
+        failures.strings([ip for ip, _ in live])
+        failures.u32s([len(ts) for _, ts in live])
+        failures.f64s([t for _, ts in live for t in ts])
+        lasts = list(self.last_success_by_user.values())
+        successes = Writer()
+        successes.strings(list(self.last_success_by_user))
+        successes.string_refs([last.get('ip') or '' for last in lasts])
+        successes.f64s([last.get('ts') for last in lasts])
+        successes.f64s([last.get('lat') for last in lasts])
+        successes.f64s([last.get('lon') for last in lasts])
+        return {'failed_attempts': failures.buf, 'last_success_by_user': successes.buf}
+    def restore_state(self, sections):
+        """Rebuild in-memory windows from a checkpoint."""
+        if 'failed_attempts' in sections:
+            r = Reader(sections['failed_attempts'])
+            ips = r.strings()
+            counts = r.u32s()
+            timestamps = iter(r.f64s())
+            self.failed_attempts.update({ip: list(islice(timestamps, count)) for ip, count in zip(ips, counts)})
+        if 'last_success_by_user' in sections:
+            r = Reader(sections['last_success_by_user'])
+            usernames = r.strings()
+            columns = zip(r.string_refs(), r.f64s(), r.f64s(), r.f64s())
+            self.last_success_by_user.update({
+                username: {'ip': ip, 'ts': ts, 'lat': lat, 'lon': lon}
+                for username, (ip, ts, lat, lon) in zip(usernames, columns)
+            })
+        print(f"Restored {len(self.failed_attempts)} IP windows and {len(self.last_success_by_user)} user records")
     def analyze_event(self, event):
         """
         Analyze a single login event using sliding window algorithm.
@@ -92,7 +144,10 @@ class ThreatDetectionEngine:
         lon = event.get('lon')
         # Current wall time (seconds)
         now = time.time()
-        print(f"📥 Event: {status} from {ip}")
+        if event.get('count'):
+            print(f"📥 Event: {status} x{event['count']} from {ip}")
+        else:
+            print(f"📥 Event: {status} from {ip}")
         # Impossible-travel detection + Reset-on-success behavior
         if status == 'SUCCESS':
             # Impossible travel: if we have a previous successful login for the same username,
@@ -136,12 +191,16 @@ class ThreatDetectionEngine:
                 print(f"   {ip}: SUCCESS — reset failure counter")
             return
 
-        # Only track failures from here onwards
-        if status != 'FAILURE':
+        # Only track failures from here onwards; SHED is an attempt rejected unverified under
+        # overload, and only counts when it did not come from a known-good client
+        if status != 'FAILURE' and (status != 'SHED' or event.get('priority') == 'TRUSTED'):
             return
         current_time = time.time()
-        # Add current failure timestamp
-        self.failed_attempts[ip].append(current_time)
+        # Add current failure timestamp; an aggregated summary from the producer stands for
+        # `count` failures. Anything past the threshold triggers a block anyway, so the
+        # window never needs more than FAILURE_THRESHOLD + 1 entries per event.
+        count = int(event.get('count') or 1)
+        self.failed_attempts[ip].extend([current_time] * min(count, FAILURE_THRESHOLD + 1))
         # SLIDING WINDOW CLEANUP: Remove timestamps older than TIME_WINDOW_SECONDS
         self.failed_attempts[ip] = [
             t for t in self.failed_attempts[ip] 
@@ -157,71 +216,30 @@ class ThreatDetectionEngine:
             del self.failed_attempts[ip]
     def block_ip(self, ip):
         """
-        Block an IP by inserting/updating the database.
-        Calculates blocked_until as NOW + BLOCK_DURATION_MINUTES.
+        Publish a block decision for an IP.
+        Calculates blocked_until as NOW + BLOCK_DURATION_MINUTES; the Java
+        block-decision service upserts it and revokes the IP's sessions.
         """
         try:
-            cursor = self.db_conn.cursor()
-            # Calculate expiry time
             blocked_until = datetime.now() + timedelta(minutes=BLOCK_DURATION_MINUTES)
-            # Insert or update the block record
-            cursor.execute("""
-                INSERT INTO blocked_ips (ip_address, blocked_until, reason)
-                VALUES (%s, %s, 'Brute Force Detected')
-                ON CONFLICT (ip_address) 
-                DO UPDATE SET 
-                    blocked_until = EXCLUDED.blocked_until,
-                    blocked_at = CURRENT_TIMESTAMP,
-                    reason = EXCLUDED.reason;
-            """, (ip, blocked_until))
-
-            # Revoke all active sessions for this IP
-            self.revoke_sessions_for_ip(cursor, ip)
-
-            self.db_conn.commit()
-            cursor.close()
+            self.producer.send(BLOCK_DECISIONS_TOPIC, key=ip, value={
+                'target': ip,
+                'blockedUntil': blocked_until.isoformat(),
+                'reason': 'Brute Force Detected',
+                'source': BLOCK_SOURCE
+            })
             print(f"   BLOCKED {ip} until {blocked_until.strftime('%Y-%m-%d %H:%M:%S')}")
         except Exception as e:
             print(f"   Failed to block IP {ip}: {e}")
-            self.db_conn.rollback()
-
-    def revoke_sessions_for_ip(self, cursor, ip):
-        """
-        Revoke all active sessions for a blocked IP.
-        Deletes from both SPRING_SESSION and user_sessions tables.
-        """
-        try:
-            # Find all session IDs for this IP
-            cursor.execute(
-                "SELECT session_id FROM user_sessions WHERE ip_address = %s", (ip,)
-            )
-            sessions = cursor.fetchall()
-
-            if sessions:
-                session_ids = [s[0] for s in sessions]
-                print(f"   🔒 Revoking {len(session_ids)} session(s) for IP {ip}")
-
-                # Delete from Spring Session table
-                for sid in session_ids:
-                    cursor.execute(
-                        "DELETE FROM SPRING_SESSION WHERE SESSION_ID = %s", (sid,)
-                    )
-
-                # Delete from user_sessions tracking table
-                cursor.execute(
-                    "DELETE FROM user_sessions WHERE ip_address = %s", (ip,)
-                )
-                print(f"   ✅ Sessions revoked for IP {ip}")
-            else:
-                print(f"   ℹ️ No active sessions found for IP {ip}")
-        except Exception as e:
-            print(f"   ⚠️ Failed to revoke sessions for IP {ip}: {e}")
     def cleanup(self):
         """Close connections gracefully."""
+        if self.offsets:
+            self.save_checkpoint(background=False)
         if self.consumer:
             self.consumer.close()
-        if self.db_conn:
-            self.db_conn.close()
+        if self.producer:
+            self.producer.flush()
+            self.producer.close()
         print("\nLogs monitor shutdown complete")
 def main():
 
@@ -5,7 +5,7 @@ Role: Kafka Consumer that uses Isolation Forest ML model to detect anomalous log
 Blocks malicious IPs automatically.
 
 Architecture:
-Kafka → Feature Engineering → ML Model → Block IP (PostgreSQL)
+Kafka → Feature Engineering → ML Model → Block decision (Kafka) → Java block-decision service → PostgreSQL
 """
 
 import json
@@ -13,9 +13,11 @@ import time
 import joblib
 from datetime import datetime, timedelta
 from collections import defaultdict
+from itertools import islice
 
-from kafka import KafkaConsumer
-import psycopg2
+from kafka import KafkaConsumer, KafkaProducer, TopicPartition
+
+from detector_checkpoint import CheckpointStore, Reader, SeekToCheckpointListener, Writer, gc_paused
 
 
 # =============================
@@ -28,18 +30,20 @@ KAFKA_GROUP_ID = 'ml-threat-detection'
 
 MODEL_PATH = "anomaly_model.pkl"
 
-DB_CONFIG = {
-    'host': 'localhost',
-    'port': 5432,
-    'database': 'security_db',
-    'user': 'admin',
-    'password': 'password'
-}
+# Block decisions are written to blocked_ips by the Java block-decision service,
+# which coalesces them and revokes sessions in batches
+BLOCK_DECISIONS_TOPIC = 'block-decisions'
+BLOCK_SOURCE = 'ml-engine'
 
 BLOCK_DURATION_MINUTES = 30
 
 STATE_EXPIRY_SECONDS = 3600
 
+# Feature state is snapshotted with the consumed offsets and restored on restart
+CHECKPOINT_PATH = 'checkpoints/ml_anomaly_detection.ckpt'
+
+CHECKPOINT_INTERVAL_SECONDS = 30
+
 
 # =============================
 # ML Threat Detection Engine
@@ -60,7 +64,6 @@ class MLThreatDetectionEngine:
 
         # Kafka Consumer
         self.consumer = KafkaConsumer(
-            KAFKA_TOPIC,
             bootstrap_servers=KAFKA_BROKER,
             group_id=KAFKA_GROUP_ID,
             auto_offset_reset='latest',
@@ -68,9 +71,16 @@ class MLThreatDetectionEngine:
             value_deserializer=lambda m: json.loads(m.decode('utf-8'))
         )
 
-        # PostgreSQL connection
-        self.db_conn = None
-        self.connect_to_db()
+        # Producer for block decisions
+        self.producer = KafkaProducer(
+            bootstrap_servers=KAFKA_BROKER,
+            key_serializer=lambda k: k.encode('utf-8'),
+            value_serializer=lambda v: json.dumps(v).encode('utf-8')
+        )
+
+        # IP -> blocked_until of the last decision we published, so an
+        # already-blocked IP does not produce a new decision on every event
+        self.blocked_until = {}
 
         # In-memory state for feature engineering
         self.ip_state = defaultdict(lambda: {
@@ -80,25 +90,26 @@ class MLThreatDetectionEngine:
             "last_timestamp": None
         })
 
-        print("ML Threat Detection Engine started")
-        print(f"Kafka Topic: {KAFKA_TOPIC}")
-        print(f"Block duration: {BLOCK_DURATION_MINUTES} minutes")
-        print("-" * 60)
-
+        # Restore state from the last checkpoint and resume from its offsets
+        self.offsets = {}
+        self.checkpoints = CheckpointStore(CHECKPOINT_PATH, CHECKPOINT_INTERVAL_SECONDS)
 
-    # =============================
-    # Database Connection
-    # =============================
+        checkpoint = self.checkpoints.load()
 
-    def connect_to_db(self):
+        if checkpoint is not None:
+            self.offsets, sections = checkpoint
+            with gc_paused():
+                self.restore_state(sections)
 
-        try:
-            self.db_conn = psycopg2.connect(**DB_CONFIG)
-            print("Connected to PostgreSQL")
+        self.consumer.subscribe(
+            [KAFKA_TOPIC],
+            listener=SeekToCheckpointListener(self.consumer, dict(self.offsets))
+        )
 
-        except Exception as e:
-            print("DB connection failed:", e)
-            raise
+        print("ML Threat Detection Engine started")
+        print(f"Kafka Topic: {KAFKA_TOPIC}")
+        print(f"Block duration: {BLOCK_DURATION_MINUTES} minutes")
+        print("-" * 60)
 
 
     # =============================
@@ -117,9 +128,16 @@ class MLThreatDetectionEngine:
 
         state = self.ip_state[ip]
 
+        # Aggregated FAILURE summaries from the producer stand for `count` attempts
+        count = int(event.get("count") or 1)
+
         event_ts = datetime.fromisoformat(timestamp).timestamp()
-        
-        if state["last_timestamp"] is None:
+
+        if count > 1 and event.get("firstTimestamp"):
+            # Mean gap between the attempts folded into the summary
+            first_ts = datetime.fromisoformat(event["firstTimestamp"]).timestamp()
+            delta_t = (event_ts - first_ts) / (count - 1)
+        elif state["last_timestamp"] is None:
             delta_t = 0
         else:
             delta_t = event_ts - state["last_timestamp"]
@@ -127,15 +145,17 @@ class MLThreatDetectionEngine:
         state["last_timestamp"] = event_ts
 
         # Update attempts
-        state["attempts"] += 1
+        state["attempts"] += count
 
-        # Update failures
-        if status == "FAILURE":
-            state["failures"] += 1
+        # Update failures (SHED: attempt rejected unverified under overload, counted unless TRUSTED)
+        if status == "FAILURE" or (status == "SHED" and event.get("priority") != "TRUSTED"):
+            state["failures"] += count
 
         # Update unique users
         if username:
             state["users"].add(username)
+        for name in event.get("usernames") or ():
+            state["users"].add(name)
 
         failures_per_ip = state["failures"]
         attempt_count_ip = state["attempts"]
@@ -198,67 +218,24 @@ class MLThreatDetectionEngine:
 
         try:
 
-            cursor = self.db_conn.cursor()
-
             blocked_until = datetime.now() + timedelta(
                 minutes=BLOCK_DURATION_MINUTES
             )
 
-            cursor.execute("""
-                           INSERT INTO blocked_ips (ip_address, blocked_until, reason)
-                           VALUES (%s, %s, 'ML Anomaly Detected')
-                               ON CONFLICT (ip_address)
-                DO UPDATE SET
-                               blocked_until = EXCLUDED.blocked_until,
-                                                      blocked_at = CURRENT_TIMESTAMP,
-                                                      reason = EXCLUDED.reason;
-                           """, (ip, blocked_until))
-
-            # Revoke all active sessions for this IP
-            self.revoke_sessions_for_ip(cursor, ip)
+            self.producer.send(BLOCK_DECISIONS_TOPIC, key=ip, value={
+                "target": ip,
+                "blockedUntil": blocked_until.isoformat(),
+                "reason": "ML Anomaly Detected",
+                "source": BLOCK_SOURCE
+            })
 
-            self.db_conn.commit()
-            cursor.close()
+            self.blocked_until[ip] = blocked_until
 
             print(f"BLOCKED {ip} until {blocked_until}")
 
         except Exception as e:
 
             print("Failed to block IP:", e)
-            self.db_conn.rollback()
-
-
-    def revoke_sessions_for_ip(self, cursor, ip):
-        """
-        Revoke all active sessions for a blocked IP.
-        Deletes from both SPRING_SESSION and user_sessions tables.
-        """
-        try:
-            # Find all session IDs for this IP
-            cursor.execute(
-                "SELECT session_id FROM user_sessions WHERE ip_address = %s", (ip,)
-            )
-            sessions = cursor.fetchall()
-
-            if sessions:
-                session_ids = [s[0] for s in sessions]
-                print(f"   🔒 Revoking {len(session_ids)} session(s) for IP {ip}")
-
-                # Delete from Spring Session table
-                for sid in session_ids:
-                    cursor.execute(
-                        "DELETE FROM SPRING_SESSION WHERE SESSION_ID = %s", (sid,)
-                    )
-
-                # Delete from user_sessions tracking table
-                cursor.execute(
-                    "DELETE FROM user_sessions WHERE ip_address = %s", (ip,)
-                )
-                print(f"   ✅ Sessions revoked for IP {ip}")
-            else:
-                print(f"   ℹ️ No active sessions found for IP {ip}")
-        except Exception as e:
-            print(f"   ⚠️ Failed to revoke sessions for IP {ip}: {e}")
 
 
     # =============================
@@ -280,6 +257,82 @@ class MLThreatDetectionEngine:
 
                 print("Error processing event:", e)
 
+            self.offsets[TopicPartition(message.topic, message.partition)] = message.offset + 1
+
+            if self.checkpoints.due():
+                self.save_checkpoint()
+
+
+    # =============================
+    # Checkpointing
+    # =============================
+
+    def save_checkpoint(self, background=True):
+
+        # Encoding copies the state here; framing and fsync run on the store's writer thread
+        try:
+            with gc_paused():
+                sections = self.snapshot_state()
+            if background:
+                self.checkpoints.save_in_background(self.offsets, sections)
+            else:
+                self.checkpoints.wait()
+                self.checkpoints.save(self.offsets, sections)
+
+        except Exception as e:
+            print("Failed to save checkpoint:", e)
+
+
+    def snapshot_state(self):
+
+        states = list(self.ip_state.values())
+
+        features = Writer()
+        features.strings(list(self.ip_state))
+        features.u32s([state["failures"] for state in states])
+        features.u32s([state["attempts"] for state in states])
+        features.f64s([state["last_timestamp"] for state in states])
+        features.u32s([len(state["users"]) for state in states])
+        features.string_refs([username for state in states for username in state["users"]])
+
+        blocks = Writer()
+        now = datetime.now()
+        active = [(ip, until) for ip, until in self.blocked_until.items() if until > now]
+        blocks.strings([ip for ip, _ in active])
+        blocks.f64s([until.timestamp() for _, until in active])
+
+        return {"ip_state": features.buf, "blocked_until": blocks.buf}
+
+
+    def restore_state(self, sections):
+
+        if "ip_state" in sections:
+            r = Reader(sections["ip_state"])
+            ips = r.strings()
+            failures = r.u32s()
+            attempts = r.u32s()
+            last_timestamps = r.f64s()
+            user_counts = r.u32s()
+            usernames = iter(r.string_refs())
+
+            self.ip_state.update({
+                ip: {
+                    "failures": failed,
+                    "attempts": attempted,
+                    "users": set(islice(usernames, user_count)),
+                    "last_timestamp": last_timestamp
+                }
+                for ip, failed, attempted, last_timestamp, user_count in zip(
+                    ips, failures, attempts, last_timestamps, user_counts)
+            })
+
+        if "blocked_until" in sections:
+            r = Reader(sections["blocked_until"])
+            ips = r.strings()
+            self.blocked_until.update(zip(ips, map(datetime.fromtimestamp, r.f64s())))
+
+        print(f"Restored feature state for {len(self.ip_state)} IPs")
+
 
     # =============================
     # Cleanup
@@ -287,30 +340,30 @@ class MLThreatDetectionEngine:
 
     def cleanup(self):
 
+        if self.offsets:
+            self.save_checkpoint(background=False)
+
         if self.consumer:
             self.consumer.close()
 
-        if self.db_conn:
-            self.db_conn.close()
+        if self.producer:
+            self.producer.flush()
+            self.producer.close()
 
         print("Shutdown complete")
 
     def is_ip_blocked(self, ip):
-    
-        cursor = self.db_conn.cursor()
-    
-        cursor.execute("""
-            SELECT blocked_until
-            FROM blocked_ips
-            WHERE ip_address = %s
-            AND blocked_until > CURRENT_TIMESTAMP
-        """, (ip,))
-    
-        result = cursor.fetchone()
-    
-        cursor.close()
-    
-        return result is not None
+
+        blocked_until = self.blocked_until.get(ip)
+
+        if blocked_until is None:
+            return False
+
+        if blocked_until <= datetime.now():
+            del self.blocked_until[ip]
+            return False
+
+        return True
 
 
     def cleanup_old_state(self):
@@ -1,8 +1,14 @@
 package com.vasan12sp.loginthreatdetection.config;
 
 import tools.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.kafka.autoconfigure.ConcurrentKafkaListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.lang.reflect.Method;
 
@@ -35,4 +41,22 @@ public class AppConfig {
 
         return mapper;
     }
+
+    /**
+     * Listener container factory for block decisions only: a failed batch is retried
+     * indefinitely with a fixed back-off instead of being skipped after a few attempts,
+     * so decisions are not lost while the database is down. Offsets stay uncommitted
+     * until the batch succeeds. Other listeners keep the default factory and error handler.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> blockDecisionsContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            @Value("${block.decisions.retry-interval-ms:1000}") long retryIntervalMillis) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setCommonErrorHandler(
+                new DefaultErrorHandler(new FixedBackOff(retryIntervalMillis, FixedBackOff.UNLIMITED_ATTEMPTS)));
+        return factory;
+    }
 }
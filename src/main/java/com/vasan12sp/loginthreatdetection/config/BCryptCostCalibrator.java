@@ -0,0 +1,70 @@
+package com.vasan12sp.loginthreatdetection.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+
+/**
+ * Measures BCrypt on the current hardware at startup and picks the highest
+ * work factor whose single-hash time still fits the configured latency budget.
+ * Each step up doubles the cost, so calibration stops as soon as the next
+ * strength would clearly exceed the budget.
+ */
+@Slf4j
+public final class BCryptCostCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample-password";
+    private static final int WARMUP_STRENGTH = 4;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int SAMPLES_AT_MIN_STRENGTH = 3;
+
+    private BCryptCostCalibrator() {
+    }
+
+    /**
+     * @param budgetMillis target time for one verification
+     * @param minStrength  floor that is never undercut (existing hashes use this cost)
+     * @param maxStrength  ceiling for the search (BCrypt allows up to 31)
+     * @return the selected work factor
+     */
+    public static int calibrate(long budgetMillis, int minStrength, int maxStrength) {
+        // Let the JIT compile the BCrypt core before timing anything
+        BCryptPasswordEncoder warmup = new BCryptPasswordEncoder(WARMUP_STRENGTH);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            warmup.encode(SAMPLE_PASSWORD);
+        }
+
+        int selected = minStrength;
+        long selectedMillis = measureMillis(minStrength, SAMPLES_AT_MIN_STRENGTH);
+
+        if (selectedMillis > budgetMillis) {
+            log.warn("BCrypt strength {} takes {} ms, above the {} ms budget; keeping the minimum strength",
+                    minStrength, selectedMillis, budgetMillis);
+            return minStrength;
+        }
+
+        while (selected < maxStrength && selectedMillis * 2 <= budgetMillis * 3 / 2) {
+            long candidateMillis = measureMillis(selected + 1, 1);
+            if (candidateMillis > budgetMillis) {
+                break;
+            }
+            selected++;
+            selectedMillis = candidateMillis;
+        }
+
+        log.info("BCrypt calibrated: strength {} (~{} ms per hash, budget {} ms)",
+                selected, selectedMillis, budgetMillis);
+        return selected;
+    }
+
+    private static long measureMillis(int strength, int samples) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < samples; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1_000_000;
+    }
+}
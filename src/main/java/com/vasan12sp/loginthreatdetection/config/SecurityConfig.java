@@ -1,7 +1,10 @@
 package com.vasan12sp.loginthreatdetection.config;
 
 import com.vasan12sp.loginthreatdetection.filter.BlockedIpSessionFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -32,15 +35,16 @@ public class SecurityConfig {
             // Disable CSRF for REST API
             .csrf(csrf -> csrf.disable())
 
-            // Session management
+            // Session management; the per-user session limit is enforced at login by JdbcSessionRegistry
             .sessionManagement(session -> session
                 .sessionCreationPolicy(SessionCreationPolicy.IF_REQUIRED)
-                .maximumSessions(3)
             )
 
             // Authorization rules
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/auth/login", "/api/auth/health", "/api/auth/register").permitAll()
+                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
 
@@ -54,9 +58,24 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * BCrypt encoder whose work factor is calibrated against the latency budget at startup.
+     * Stored hashes below the calibrated cost keep verifying and are upgraded on the next
+     * successful login (see CustomUserDetailsService#updatePassword).
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            MeterRegistry meterRegistry,
+            @Value("${auth.bcrypt.target-millis:250}") long targetMillis,
+            @Value("${auth.bcrypt.min-strength:10}") int minStrength,
+            @Value("${auth.bcrypt.max-strength:16}") int maxStrength) {
+
+        int strength = BCryptCostCalibrator.calibrate(targetMillis, minStrength, maxStrength);
+        Gauge.builder("auth.password.bcrypt.strength", () -> strength)
+                .description("BCrypt work factor selected at startup")
+                .register(meterRegistry);
+
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(strength), meterRegistry);
     }
 
     @Bean
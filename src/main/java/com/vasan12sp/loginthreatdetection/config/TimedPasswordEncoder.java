@@ -0,0 +1,51 @@
+package com.vasan12sp.loginthreatdetection.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * PasswordEncoder decorator that records the time of every verification.
+ * Published as the "auth.password.verification" timer, tagged by outcome.
+ */
+public class TimedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final Timer matchedTimer;
+    private final Timer mismatchedTimer;
+
+    public TimedPasswordEncoder(PasswordEncoder delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.matchedTimer = Timer.builder("auth.password.verification")
+                .description("Time spent verifying a password hash")
+                .tag("outcome", "match")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.mismatchedTimer = Timer.builder("auth.password.verification")
+                .description("Time spent verifying a password hash")
+                .tag("outcome", "mismatch")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        long start = System.nanoTime();
+        boolean matched = delegate.matches(rawPassword, encodedPassword);
+        (matched ? matchedTimer : mismatchedTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return matched;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -0,0 +1,143 @@
+package com.vasan12sp.loginthreatdetection.controller;
+
+import com.vasan12sp.loginthreatdetection.service.BlocklistImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminController {
+
+    private static final int MAX_REASON_LENGTH = 255;  // blocked_ips.reason
+
+    private final BlocklistImportService blocklistImportService;
+
+    @Value("${blocklist.import.max-duration-hours:8760}")
+    private long maxDurationHours;
+
+    @Value("${blocklist.import.max-upload-bytes:536870912}")
+    private long maxUploadBytes;
+
+    @Value("${blocklist.import.upload-timeout-ms:300000}")
+    private long uploadTimeoutMillis;
+
+
+    /**
+     * Bulk import endpoint - streams a newline-delimited IPv4/CIDR feed from the request body
+     * into blocked_ips. Requires ROLE_ADMIN.
+     *
+     * The body is first spooled to a temporary file (bounded in size and upload time), so the
+     * database transaction only runs at disk speed and a slow client never holds a pooled connection.
+     *
+     * Example: curl -b cookies.txt --data-binary @feed.txt -H "Content-Type: text/plain" \
+     *          "http://localhost:8080/api/admin/blocklist/import?durationHours=24"
+     */
+    @PostMapping("/blocklist/import")
+    public ResponseEntity<Map<String, Object>> importBlocklist(
+            @RequestParam(defaultValue = "24") long durationHours,
+            @RequestParam(defaultValue = "Threat Intel Feed") String reason,
+            HttpServletRequest request) throws IOException {
+
+        Map<String, Object> responseBody = new HashMap<>();
+
+        if (durationHours < 1 || durationHours > maxDurationHours) {
+            responseBody.put("success", false);
+            responseBody.put("message", "durationHours must be between 1 and " + maxDurationHours);
+            return ResponseEntity.badRequest().body(responseBody);
+        }
+        if (reason.isBlank() || reason.length() > MAX_REASON_LENGTH) {
+            responseBody.put("success", false);
+            responseBody.put("message", "reason must be 1 to " + MAX_REASON_LENGTH + " characters");
+            return ResponseEntity.badRequest().body(responseBody);
+        }
+        if (request.getContentLengthLong() > maxUploadBytes) {
+            responseBody.put("success", false);
+            responseBody.put("message", "Feed larger than " + maxUploadBytes + " bytes");
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(responseBody);
+        }
+
+        log.info("Blocklist import started ({} h, reason: {})", durationHours, reason);
+
+        Path spool = Files.createTempFile("blocklist-import-", ".txt");
+        try {
+            HttpStatus spoolError = spool(request.getInputStream(), spool);
+            if (spoolError != null) {
+                String message = spoolError == HttpStatus.REQUEST_TIMEOUT
+                        ? "Upload not completed within " + uploadTimeoutMillis + " ms"
+                        : "Feed larger than " + maxUploadBytes + " bytes";
+                log.warn("Blocklist import rejected: {}", message);
+                responseBody.put("success", false);
+                responseBody.put("message", message);
+                return ResponseEntity.status(spoolError).body(responseBody);
+            }
+
+            BlocklistImportService.ImportResult result;
+            try (InputStream feed = Files.newInputStream(spool)) {
+                result = blocklistImportService.importFeed(
+                        feed,
+                        LocalDateTime.now().plusHours(durationHours),
+                        reason
+                );
+            }
+
+            responseBody.put("success", true);
+            responseBody.put("message", "Blocklist imported");
+            responseBody.put("linesRead", result.getLinesRead());
+            responseBody.put("entriesImported", result.getEntriesImported());
+            responseBody.put("linesSkipped", result.getLinesSkipped());
+            responseBody.put("rowsUpserted", result.getRowsUpserted());
+            responseBody.put("ranges", result.getRanges());
+            responseBody.put("elapsedMillis", result.getElapsedMillis());
+            responseBody.put("rowsPerSecond", result.getRowsPerSecond());
+            responseBody.put("timestamp", System.currentTimeMillis());
+
+            return ResponseEntity.ok(responseBody);
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    /**
+     * Copy the upload to the spool file, enforcing the size cap and the overall upload deadline.
+     * A single stalled read is bounded by the servlet container's connection timeout.
+     *
+     * @return null on success, otherwise the status to reject the upload with
+     */
+    private HttpStatus spool(InputStream upload, Path spool) throws IOException {
+        long deadline = System.currentTimeMillis() + uploadTimeoutMillis;
+        long total = 0;
+        byte[] buffer = new byte[1 << 16];
+
+        try (OutputStream out = Files.newOutputStream(spool)) {
+            int read;
+            while ((read = upload.read(buffer)) != -1) {
+                total += read;
+                if (total > maxUploadBytes) {
+                    return HttpStatus.PAYLOAD_TOO_LARGE;
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    return HttpStatus.REQUEST_TIMEOUT;
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+        return null;
+    }
+}
@@ -28,6 +28,9 @@ public class User {
     @Column(name = "enabled")
     private Boolean enabled = true;
 
+    @Column(name = "is_admin", nullable = false)
+    private Boolean admin = false;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -35,6 +38,7 @@ public class User {
         this.username = username;
         this.password = password;
         this.enabled = true;
+        this.admin = false;
         this.createdAt = LocalDateTime.now();
     }
 }
@@ -1,6 +1,6 @@
 package com.vasan12sp.loginthreatdetection.filter;
 
-import com.vasan12sp.loginthreatdetection.repository.BlockedIpRepository;
+import com.vasan12sp.loginthreatdetection.service.BlockEnforcementService;
 import com.vasan12sp.loginthreatdetection.service.SessionRevocationService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -27,7 +27,7 @@ import java.io.IOException;
 @Slf4j
 public class BlockedIpSessionFilter extends OncePerRequestFilter {
 
-    private final BlockedIpRepository blockedIpRepository;
+    private final BlockEnforcementService blockEnforcementService;
     private final SessionRevocationService sessionRevocationService;
 
     @Override
@@ -38,7 +38,7 @@ public class BlockedIpSessionFilter extends OncePerRequestFilter {
 
         String ip = extractIpAddress(request);
 
-        if (blockedIpRepository.isIpBlocked(ip)) {
+        if (blockEnforcementService.isBlocked(ip)) {
             log.warn("Blocked IP detected in session filter: {}", ip);
 
             // Invalidate current session if exists
@@ -0,0 +1,59 @@
+package com.vasan12sp.loginthreatdetection.filter;
+
+import com.vasan12sp.loginthreatdetection.service.WarmupTraffic;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Records the latency of the first real (non-actuator) request served by this instance,
+ * published as the "app.first.request.latency" timer. Used to confirm that warm-up
+ * removed the cold-start penalty.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+public class FirstRequestLatencyFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+    private final WarmupTraffic warmupTraffic;
+    private final AtomicBoolean recorded = new AtomicBoolean();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return recorded.get() || request.getRequestURI().startsWith("/actuator") || warmupTraffic.isSynthetic(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (recorded.compareAndSet(false, true)) {
+                long elapsedNanos = System.nanoTime() - start;
+                meterRegistry.timer("app.first.request.latency").record(elapsedNanos, TimeUnit.NANOSECONDS);
+                log.info("First request {} {} served in {} ms",
+                        request.getMethod(), request.getRequestURI(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.vasan12sp.loginthreatdetection.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Block decision published by the detection engines on the "block-decisions" topic.
+ * The target is either a single IP or an IPv4 CIDR range.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlockDecision {
+
+    private String target;
+    private LocalDateTime blockedUntil;
+    private String reason;
+    private String source;  // e.g. "logs-monitor" or "ml-engine"
+}
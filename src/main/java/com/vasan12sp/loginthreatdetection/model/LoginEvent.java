@@ -1,10 +1,12 @@
 package com.vasan12sp.loginthreatdetection.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.Instant;
+import java.util.List;
 
 /**
  * Model representing a login event that gets sent to Kafka.
@@ -16,13 +18,38 @@ import java.time.Instant;
 public class LoginEvent {
 
     private String ip;
-    private String status;  // "SUCCESS" or "FAILURE"
+    private String status;  // "SUCCESS", "FAILURE" or "SHED" (rejected unverified under overload)
     private Instant timestamp;
     private String username;  // Optional, for additional context
 
+    // Queue priority of a SHED attempt ("TRUSTED" or "UNKNOWN"); detectors only count UNKNOWN sheds
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String priority;
+
+    // Location from the local GeoIP table, when the IP is covered (see GeoIpService)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double lat;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double lon;
+
+    // Set only on aggregated FAILURE summaries (see KafkaProducerService)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer count;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Instant firstTimestamp;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<String> usernames;
+
     public LoginEvent(String ip, String status, Instant timestamp) {
         this.ip = ip;
         this.status = status;
         this.timestamp = timestamp;
     }
+
+    public LoginEvent(String ip, String status, Instant timestamp, String username) {
+        this.ip = ip;
+        this.status = status;
+        this.timestamp = timestamp;
+        this.username = username;
+    }
 }
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 
@@ -21,4 +22,19 @@ public interface BlockedIpRepository extends JpaRepository<BlockedIp, String> {
     default boolean isIpBlocked(String ip) {
         return isIpBlocked(ip, LocalDateTime.now());
     }
+
+
+    @Query(value = "SELECT set_config('statement_timeout', :timeout, true)", nativeQuery = true)
+    String setLocalStatementTimeout(@Param("timeout") String timeout);
+
+
+    /**
+     * Lookup that Postgres cancels after the given time, so a slow database cannot pin the
+     * connection. JDBC query timeouts only have whole-second resolution, hence statement_timeout.
+     */
+    @Transactional(readOnly = true)
+    default boolean isIpBlocked(String ip, long timeoutMillis) {
+        setLocalStatementTimeout(timeoutMillis + "ms");
+        return isIpBlocked(ip);
+    }
 }
@@ -2,7 +2,6 @@ package com.vasan12sp.loginthreatdetection.service;
 
 import com.vasan12sp.loginthreatdetection.model.LoginEvent;
 import com.vasan12sp.loginthreatdetection.model.LoginRequest;
-import com.vasan12sp.loginthreatdetection.repository.BlockedIpRepository;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
@@ -23,31 +22,39 @@ import java.time.Instant;
 @Slf4j
 public class AuthService {
 
-    private final BlockedIpRepository blockedIpRepository;
+    private final BlockEnforcementService blockEnforcementService;
     private final KafkaProducerService kafkaProducerService;
     private final AuthenticationManager authenticationManager;
     private final SessionRevocationService sessionRevocationService;
+    private final JdbcSessionRegistry sessionRegistry;
+    private final PasswordVerificationExecutor passwordVerificationExecutor;
+    private final WarmupTraffic warmupTraffic;
 
 
     public LoginResponse processLogin(LoginRequest request, String userIp, HttpServletRequest httpRequest) {
         log.info("Processing login for user: {} from IP: {}", request.getUsername(), userIp);
 
         // STEP 1: Check Block Status (Enforcement)
-        if (blockedIpRepository.isIpBlocked(userIp)) {
+        if (blockEnforcementService.isBlocked(userIp)) {
             log.warn("Login attempt from blocked IP: {}", userIp);
             // Emit FAILURE event for blocked IPs too
             LoginEvent event = new LoginEvent(userIp, "FAILURE", Instant.now(), request.getUsername());
-            kafkaProducerService.sendLoginEvent(event);
+            emit(event, httpRequest);
             return new LoginResponse(false, "Access Denied: Your IP is temporarily blocked", 403, null);
         }
 
-        // STEP 2: Authenticate using Spring Security
+        // STEP 2: Authenticate using Spring Security (BCrypt runs on the verification pool)
+        PasswordVerificationExecutor.Priority priority = passwordVerificationExecutor.priorityFor(
+                userIp, request.getUsername(), hasSessionFor(httpRequest, request.getUsername()));
         try {
-            Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                    request.getUsername(),
-                    request.getPassword()
-                )
+            Authentication authentication = passwordVerificationExecutor.verify(
+                () -> authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(
+                        request.getUsername(),
+                        request.getPassword()
+                    )
+                ),
+                priority
             );
 
             // STEP 3: Create session and set security context
@@ -61,12 +68,13 @@ public class AuthService {
             String sessionId = session.getId();
             log.info("Session created: {} for user: {}", sessionId, request.getUsername());
 
-            // STEP 4: Register session for IP-based revocation tracking
-            sessionRevocationService.registerSession(sessionId, request.getUsername(), userIp);
+            // STEP 4: Register session for IP-based revocation tracking (enforces the per-user limit)
+            sessionRegistry.registerSession(sessionId, request.getUsername(), userIp);
+            passwordVerificationExecutor.recordSuccess(userIp, request.getUsername());
 
             // STEP 5: Emit SUCCESS event to Kafka
             LoginEvent event = new LoginEvent(userIp, "SUCCESS", Instant.now(), request.getUsername());
-            kafkaProducerService.sendLoginEvent(event);
+            emit(event, httpRequest);
 
             return new LoginResponse(true, "Login successful", 200, sessionId);
 
@@ -75,10 +83,52 @@ public class AuthService {
 
             // Emit FAILURE event to Kafka (triggers threat detection)
             LoginEvent event = new LoginEvent(userIp, "FAILURE", Instant.now(), request.getUsername());
-            kafkaProducerService.sendLoginEvent(event);
+            emit(event, httpRequest);
 
             return new LoginResponse(false, "Invalid credentials", 401, null);
+
+        } catch (PasswordVerificationExecutor.VerificationRejectedException e) {
+            log.warn("Login shed for user: {} from IP: {} ({} priority): {}",
+                    request.getUsername(), userIp, priority, e.getMessage());
+
+            // Shed attempts still reach the detectors, otherwise a flood hides most of itself
+            LoginEvent event = new LoginEvent(userIp, "SHED", Instant.now(), request.getUsername());
+            event.setPriority(priority.name());
+            emit(event, httpRequest);
+            return new LoginResponse(false, "Service busy, please retry later", 503, null);
+        }
+    }
+
+
+    /**
+     * Publish a login event, unless it comes from warm-up's synthetic traffic.
+     */
+    private void emit(LoginEvent event, HttpServletRequest httpRequest) {
+        if (!warmupTraffic.isSynthetic(httpRequest)) {
+            kafkaProducerService.sendLoginEvent(event);
+        }
+    }
+
+
+    /**
+     * True only if the request carries a valid session already authenticated as this username.
+     * Any other session (e.g. one a bot obtained by registering its own account) earns no priority.
+     */
+    private boolean hasSessionFor(HttpServletRequest httpRequest, String username) {
+        if (username == null || !httpRequest.isRequestedSessionIdValid()) {
+            return false;
+        }
+        HttpSession session = httpRequest.getSession(false);
+        if (session == null) {
+            return false;
+        }
+        Object context = session.getAttribute("SPRING_SECURITY_CONTEXT");
+        if (!(context instanceof SecurityContext securityContext)) {
+            return false;
         }
+        Authentication authentication = securityContext.getAuthentication();
+        return authentication != null && authentication.isAuthenticated()
+                && username.equals(authentication.getName());
     }
 
 
@@ -0,0 +1,226 @@
+package com.vasan12sp.loginthreatdetection.service;
+
+import tools.jackson.databind.ObjectMapper;
+import com.vasan12sp.loginthreatdetection.model.BlockDecision;
+import com.vasan12sp.loginthreatdetection.util.Ipv4;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Single writer for block decisions coming from the ML engine and the rules monitor.
+ * Decisions are consumed in poll-sized batches and coalesced per IP/CIDR, then written
+ * with one multi-row upsert into blocked_ips plus one set-based session revocation per
+ * batch, all in a single transaction, instead of one tiny transaction per decision.
+ *
+ * Nothing is held in memory between polls: the listener returns only after the batch
+ * is committed, so the container commits the Kafka offsets after the write. A crash or
+ * restart replays the uncommitted decisions (the upsert is idempotent), and while the
+ * database is down the error handler keeps retrying the same batch (see AppConfig).
+ *
+ * Targets are validated and canonicalized before they reach the upsert. If a batch is
+ * still rejected by the database for its content, it is split in halves until the
+ * offending decision is isolated and quarantined (logged and counted), so one bad
+ * message cannot stall every later block.
+ */
+@Service
+@Slf4j
+public class BlockDecisionService {
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO blocked_ips (ip_address, blocked_until, reason) " +
+        "SELECT * FROM unnest(?::varchar[], ?::timestamp[], ?::varchar[]) " +
+        "ON CONFLICT (ip_address) DO UPDATE SET " +
+        "blocked_until = GREATEST(blocked_ips.blocked_until, EXCLUDED.blocked_until), " +
+        "blocked_at = CURRENT_TIMESTAMP, " +
+        "reason = EXCLUDED.reason";
+
+    // blocked_ips column sizes
+    private static final int MAX_TARGET_LENGTH = 50;
+    private static final int MAX_REASON_LENGTH = 255;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionRevocationService sessionRevocationService;
+    private final ObjectMapper objectMapper;
+    private final int maxBatchSize;
+    private final Counter rejected;
+    private final Counter quarantined;
+
+    public BlockDecisionService(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                SessionRevocationService sessionRevocationService,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${block.decisions.max-batch-size:1000}") int maxBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.sessionRevocationService = sessionRevocationService;
+        this.objectMapper = objectMapper;
+        this.maxBatchSize = maxBatchSize;
+        this.rejected = Counter.builder("block.decisions.rejected")
+                .description("Block decisions dropped because they were incomplete or had an invalid target")
+                .register(meterRegistry);
+        this.quarantined = Counter.builder("block.decisions.quarantined")
+                .description("Block decisions the database refused, isolated from their batch and dropped")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Consume decisions published by the Python detection engines, one poll at a time.
+     * Throwing leaves the offsets uncommitted so the same poll is retried.
+     */
+    @KafkaListener(topics = "${block.decisions.topic:block-decisions}", batch = "true",
+                   containerFactory = "blockDecisionsContainerFactory")
+    public void onDecisionMessages(List<String> messages) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, BlockDecision> coalesced = new LinkedHashMap<>();
+        for (String message : messages) {
+            BlockDecision decision;
+            try {
+                decision = objectMapper.readValue(message, BlockDecision.class);
+            } catch (Exception e) {
+                log.error("Failed to parse block decision: {}", message, e);
+                continue;
+            }
+            decision = normalize(decision);
+            if (decision == null) {
+                rejected.increment();
+                continue;
+            }
+            if (!decision.getBlockedUntil().isAfter(now)) {
+                // Replayed history (new group, offset reset): the block is over, do not revoke live sessions
+                log.debug("Skipping expired block decision: {}", decision);
+                continue;
+            }
+            // Repeated decisions for the same target collapse into one, keeping the longest block
+            coalesced.merge(decision.getTarget(), decision, BlockDecisionService::longer);
+        }
+        apply(new ArrayList<>(coalesced.values()));
+    }
+
+    /**
+     * Write decisions in chunks of at most max-batch-size, one transaction per chunk.
+     */
+    public void apply(List<BlockDecision> decisions) {
+        for (int from = 0; from < decisions.size(); from += maxBatchSize) {
+            List<BlockDecision> batch = decisions.subList(from, Math.min(from + maxBatchSize, decisions.size()));
+            int written = writeOrSplit(batch);
+            log.info("Flushed {} block decision(s)", written);
+        }
+    }
+
+    /**
+     * Validate a decision and put its target in canonical form
+     * ("a.b.c.d" or "a.b.c.d/n" for IPv4, lower-case for IPv6).
+     *
+     * @return the normalized decision, or null if it must be dropped
+     */
+    private static BlockDecision normalize(BlockDecision decision) {
+        if (decision.getTarget() == null || decision.getBlockedUntil() == null) {
+            log.warn("Ignoring incomplete block decision: {}", decision);
+            return null;
+        }
+
+        String target = decision.getTarget().trim();
+        long cidr = Ipv4.parseCidr(target);
+        if (cidr >= 0) {
+            target = Ipv4.formatCidr(cidr);
+        } else if (isIpv6(target)) {
+            target = target.toLowerCase();
+        } else {
+            log.warn("Ignoring block decision with invalid target: {}", decision);
+            return null;
+        }
+
+        String reason = decision.getReason();
+        if (reason != null && reason.length() > MAX_REASON_LENGTH) {
+            reason = reason.substring(0, MAX_REASON_LENGTH);
+        }
+        return new BlockDecision(target, decision.getBlockedUntil(), reason, decision.getSource());
+    }
+
+    private static boolean isIpv6(String target) {
+        if (target.isEmpty() || target.length() > MAX_TARGET_LENGTH || target.indexOf(':') < 0) {
+            return false;
+        }
+        for (int i = 0; i < target.length(); i++) {
+            char c = target.charAt(i);
+            boolean valid = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')
+                    || c == ':' || c == '.' || c == '/';
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write a batch in one transaction. When the database rejects its content, split it
+     * in halves to isolate and quarantine the offending decision; connection and other
+     * transient failures are rethrown so the whole poll is retried.
+     *
+     * @return number of decisions written
+     */
+    private int writeOrSplit(List<BlockDecision> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeBatch(batch));
+            return batch.size();
+        } catch (NonTransientDataAccessException e) {
+            if (e instanceof NonTransientDataAccessResourceException) {
+                throw e;
+            }
+            if (batch.size() == 1) {
+                quarantined.increment();
+                log.error("Quarantined block decision rejected by the database: {} ({})",
+                        batch.get(0), e.getMostSpecificCause().getMessage());
+                return 0;
+            }
+            int middle = batch.size() / 2;
+            return writeOrSplit(batch.subList(0, middle)) + writeOrSplit(batch.subList(middle, batch.size()));
+        }
+    }
+
+    private void writeBatch(List<BlockDecision> batch) {
+        String[] targets = new String[batch.size()];
+        Timestamp[] blockedUntil = new Timestamp[batch.size()];
+        String[] reasons = new String[batch.size()];
+
+        for (int i = 0; i < batch.size(); i++) {
+            BlockDecision decision = batch.get(i);
+            targets[i] = decision.getTarget();
+            blockedUntil[i] = Timestamp.valueOf(decision.getBlockedUntil());
+            reasons[i] = decision.getReason();
+        }
+
+        jdbcTemplate.update(UPSERT_SQL, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("varchar", targets));
+            ps.setArray(2, connection.createArrayOf("timestamp", blockedUntil));
+            ps.setArray(3, connection.createArrayOf("varchar", reasons));
+        });
+
+        sessionRevocationService.revokeSessionsByTargets(List.of(targets));
+    }
+
+    private static BlockDecision longer(BlockDecision current, BlockDecision incoming) {
+        LocalDateTime currentUntil = current.getBlockedUntil();
+        return incoming.getBlockedUntil().isAfter(currentUntil) ? incoming : current;
+    }
+}
@@ -0,0 +1,214 @@
+package com.vasan12sp.loginthreatdetection.service;
+
+import com.vasan12sp.loginthreatdetection.repository.BlockedIpRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Block check used on every request and login.
+ *
+ * The blocked_ips lookup runs under a latency budget behind a circuit breaker.
+ * When the database is over budget, failing or the breaker is open, enforcement
+ * falls back to the last-known snapshot in {@link BlocklistCache} instead of
+ * stalling or failing the request. After a cool-down a single probe query is let
+ * through (half-open); if it succeeds the breaker closes and normal mode resumes.
+ * CIDR ranges are always answered from the snapshot; single addresses come from the
+ * database while it is healthy, so expiries and manual unblocks apply immediately.
+ * Lookups carry a statement timeout equal to the budget, so a slow database releases
+ * the query threads' connections instead of holding them past the answer's deadline.
+ */
+@Service
+@Slf4j
+public class BlockEnforcementService {
+
+    public enum Mode {
+        CLOSED,     // database is authoritative
+        HALF_OPEN,  // probing the database, others served from snapshot
+        OPEN        // serving from snapshot only
+    }
+
+    private enum Check {
+        DENIED,     // answer from the snapshot
+        NORMAL,     // breaker closed, query the database
+        PROBE       // the single half-open probe
+    }
+
+    private final BlockedIpRepository blockedIpRepository;
+    private final BlocklistCache blocklistCache;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor queryExecutor;
+    private final long budgetMillis;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private volatile Mode mode = Mode.CLOSED;
+    private volatile long openedAt;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean probeInFlight = new AtomicBoolean();
+
+    private final Counter staleServes;
+    private final Counter dbFailures;
+
+    public BlockEnforcementService(BlockedIpRepository blockedIpRepository,
+                                   BlocklistCache blocklistCache,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${blocklist.enforcement.budget-ms:100}") long budgetMillis,
+                                   @Value("${blocklist.enforcement.failure-threshold:5}") int failureThreshold,
+                                   @Value("${blocklist.enforcement.open-ms:10000}") long openMillis,
+                                   @Value("${blocklist.enforcement.query-threads:4}") int queryThreads,
+                                   @Value("${blocklist.enforcement.query-queue:64}") int queryQueue) {
+        this.blockedIpRepository = blockedIpRepository;
+        this.blocklistCache = blocklistCache;
+        this.meterRegistry = meterRegistry;
+        this.budgetMillis = budgetMillis;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.queryExecutor = new ThreadPoolExecutor(
+                queryThreads, queryThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queryQueue),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "blocklist-query-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.staleServes = Counter.builder("blocklist.enforcement.stale.serves")
+                .description("Block checks answered from the in-memory snapshot instead of the database")
+                .register(meterRegistry);
+        this.dbFailures = Counter.builder("blocklist.enforcement.db.failures")
+                .description("Database block checks that timed out, failed or were rejected")
+                .register(meterRegistry);
+        Gauge.builder("blocklist.enforcement.mode", this, service -> service.mode.ordinal())
+                .description("Circuit breaker state: 0 = closed, 1 = half-open, 2 = open")
+                .register(meterRegistry);
+    }
+
+    public boolean isBlocked(String ip) {
+        // CIDR ranges are invisible to the exact-match query, so the snapshot answers for them
+        if (blocklistCache.isBlockedByRange(ip)) {
+            return true;
+        }
+
+        Check check = allowDatabaseCheck();
+        if (check == Check.DENIED) {
+            staleServes.increment();
+            return blocklistCache.isBlocked(ip);
+        }
+        boolean probe = check == Check.PROBE;
+
+        Future<Boolean> lookup;
+        try {
+            lookup = queryExecutor.submit(() -> blockedIpRepository.isIpBlocked(ip, budgetMillis));
+        } catch (RejectedExecutionException e) {
+            onFailure(probe, "query pool saturated");
+            staleServes.increment();
+            return blocklistCache.isBlocked(ip);
+        }
+
+        try {
+            boolean blocked = lookup.get(budgetMillis, TimeUnit.MILLISECONDS);
+            onSuccess(probe);
+            return blocked;
+        } catch (TimeoutException e) {
+            lookup.cancel(true);
+            onFailure(probe, "over " + budgetMillis + " ms budget");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lookup.cancel(true);
+            if (probe) {
+                // No verdict: hand the probe to the next request
+                probeInFlight.set(false);
+            }
+        } catch (Exception e) {
+            onFailure(probe, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+
+        staleServes.increment();
+        return blocklistCache.isBlocked(ip);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queryExecutor.shutdownNow();
+    }
+
+    /**
+     * Decide whether this request may query the database. While half-open exactly one
+     * caller receives the probe token; only the token holder's outcome can move the
+     * breaker out of HALF_OPEN, so late results from queries started earlier cannot.
+     */
+    private Check allowDatabaseCheck() {
+        Mode current = mode;
+        if (current == Mode.CLOSED) {
+            return Check.NORMAL;
+        }
+        if (current == Mode.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            transition(Mode.OPEN, Mode.HALF_OPEN);
+        }
+        if (mode == Mode.HALF_OPEN && probeInFlight.compareAndSet(false, true)) {
+            return Check.PROBE;
+        }
+        return Check.DENIED;
+    }
+
+    private void onSuccess(boolean probe) {
+        consecutiveFailures.set(0);
+        if (probe) {
+            transition(Mode.HALF_OPEN, Mode.CLOSED);
+            probeInFlight.set(false);
+        }
+    }
+
+    private void onFailure(boolean probe, String cause) {
+        dbFailures.increment();
+        if (probe) {
+            openedAt = System.currentTimeMillis();
+            transition(Mode.HALF_OPEN, Mode.OPEN);
+            probeInFlight.set(false);
+        } else if (mode == Mode.CLOSED && consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            // Late failures from queries started before the breaker opened are ignored
+            openedAt = System.currentTimeMillis();
+            transition(Mode.CLOSED, Mode.OPEN);
+        }
+        log.debug("Blocklist DB check failed: {}", cause);
+    }
+
+    private synchronized void transition(Mode from, Mode to) {
+        if (mode != from) {
+            return;
+        }
+        mode = to;
+        meterRegistry.counter("blocklist.enforcement.transitions", "from", from.name(), "to", to.name()).increment();
+
+        if (to == Mode.CLOSED) {
+            log.info("Blocklist enforcement back to database mode");
+        } else if (to == Mode.OPEN) {
+            log.warn("Blocklist enforcement degraded: serving from snapshot loaded at {} for the next {} ms",
+                    blocklistCache.getLoadedAt(), openMillis);
+        } else {
+            log.info("Blocklist enforcement probing database");
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.vasan12sp.loginthreatdetection.service;
+
+import com.vasan12sp.loginthreatdetection.util.Ipv4;
+import com.vasan12sp.loginthreatdetection.util.Ipv4ExpiryTable;
+import com.vasan12sp.loginthreatdetection.util.Ipv4RangeTable;
+import com.vasan12sp.loginthreatdetection.util.LongArray;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * In-process copy of the active blocklist.
+ * Loaded during warm-up and refreshed periodically from blocked_ips; each refresh
+ * builds a new immutable snapshot and swaps it in atomically, so readers never
+ * see a half-built view.
+ *
+ * Single IPv4 addresses are held with their expiry in an {@link Ipv4ExpiryTable}, CIDR
+ * ranges in a compact {@link Ipv4RangeTable}, and anything else (e.g. IPv6) in a map with
+ * its expiry. Range entries have no per-entry expiry: an expired range disappears at the
+ * next refresh. Ranges are the one thing the exact-match database query cannot see, so
+ * {@link #isBlockedByRange} is consulted even while the database is authoritative.
+ */
+@Service
+@Slf4j
+public class BlocklistCache {
+
+    private static final String ACTIVE_BLOCKS_SQL =
+        "SELECT ip_address, blocked_until FROM blocked_ips WHERE blocked_until > ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int fetchSize;
+    private final int queryTimeoutSeconds;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    // Entries imported while a refresh is reading the table, re-applied when it swaps in
+    private Ipv4RangeTable rangesImportedDuringRefresh = Ipv4RangeTable.EMPTY;
+    private Ipv4ExpiryTable singlesImportedDuringRefresh = Ipv4ExpiryTable.EMPTY;
+
+    public BlocklistCache(JdbcTemplate jdbcTemplate,
+                          TransactionTemplate transactionTemplate,
+                          @Value("${blocklist.cache.fetch-size:10000}") int fetchSize,
+                          @Value("${blocklist.cache.query-timeout-seconds:30}") int queryTimeoutSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.fetchSize = fetchSize;
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+    }
+
+    /**
+     * Periodic refresh. If the database is unavailable the last-known snapshot
+     * is kept and keeps serving degraded-mode enforcement.
+     */
+    @Scheduled(initialDelayString = "${blocklist.cache.refresh-interval-ms:60000}",
+               fixedDelayString = "${blocklist.cache.refresh-interval-ms:60000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("Blocklist cache refresh failed, keeping snapshot loaded at {}: {}",
+                    snapshot.loadedAt(), e.getMessage());
+        }
+    }
+
+    /**
+     * Reload all active blocks from the database, streaming rows with a cursor.
+     */
+    public void refresh() {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        LongArray cidrs = new LongArray(Math.max(snapshot.ranges().size(), 1024));
+        LongArray singles = new LongArray(Math.max(snapshot.singles().size(), 1024));
+        Map<String, LocalDateTime> others = new HashMap<>();
+        synchronized (this) {
+            rangesImportedDuringRefresh = Ipv4RangeTable.EMPTY;
+            singlesImportedDuringRefresh = Ipv4ExpiryTable.EMPTY;
+        }
+
+        // A transaction is required for the driver to stream with a server-side cursor
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(
+            connection -> {
+                PreparedStatement ps = connection.prepareStatement(ACTIVE_BLOCKS_SQL);
+                ps.setFetchSize(fetchSize);
+                ps.setQueryTimeout(queryTimeoutSeconds);
+                ps.setTimestamp(1, Timestamp.valueOf(now));
+                return ps;
+            },
+            rs -> {
+                String target = rs.getString(1);
+                long cidr = Ipv4.parseCidr(target);
+                if (cidr < 0) {
+                    others.put(target, rs.getTimestamp(2).toLocalDateTime());
+                } else if (Ipv4.prefixLength(cidr) == 32) {
+                    singles.add(Ipv4ExpiryTable.pack(Ipv4.firstAddress(cidr), rs.getTimestamp(2).getTime() / 1000));
+                } else {
+                    cidrs.add(cidr);
+                }
+            }
+        ));
+
+        Ipv4RangeTable ranges = Ipv4RangeTable.fromCidrs(cidrs.array(), cidrs.size());
+        Ipv4ExpiryTable singleIps = Ipv4ExpiryTable.fromPacked(singles.array(), singles.size());
+        synchronized (this) {
+            ranges = ranges.merge(rangesImportedDuringRefresh);
+            singleIps = singleIps.merge(singlesImportedDuringRefresh);
+            snapshot = new Snapshot(Map.copyOf(others), ranges, singleIps, now);
+        }
+        log.debug("Blocklist cache refreshed in {} ms: {} rows, {} IPv4 ranges, {} single IPv4s, {} other entries",
+                (System.nanoTime() - start) / 1_000_000, cidrs.size() + singles.size() + others.size(),
+                ranges.size(), singleIps.size(), others.size());
+    }
+
+    /**
+     * Atomically add freshly imported entries (packed CIDRs, see {@link Ipv4#parseCidr})
+     * to the current snapshot. The array is sorted in place.
+     *
+     * @return number of ranges and single addresses the import resolved to
+     */
+    public int addImported(long[] packedCidrs, int count, LocalDateTime blockedUntil) {
+        long expiresAt = blockedUntil.atZone(ZoneId.systemDefault()).toEpochSecond();
+        LongArray singles = new LongArray(count);
+        int rangeCount = 0;
+        for (int i = 0; i < count; i++) {
+            long cidr = packedCidrs[i];
+            if (Ipv4.prefixLength(cidr) == 32) {
+                singles.add(Ipv4ExpiryTable.pack(Ipv4.firstAddress(cidr), expiresAt));
+            } else {
+                packedCidrs[rangeCount++] = cidr;
+            }
+        }
+        Ipv4RangeTable ranges = Ipv4RangeTable.fromCidrs(packedCidrs, rangeCount);
+        Ipv4ExpiryTable singleIps = Ipv4ExpiryTable.fromPacked(singles.array(), singles.size());
+
+        synchronized (this) {
+            rangesImportedDuringRefresh = rangesImportedDuringRefresh.merge(ranges);
+            singlesImportedDuringRefresh = singlesImportedDuringRefresh.merge(singleIps);
+            Snapshot current = snapshot;
+            snapshot = new Snapshot(current.others(), current.ranges().merge(ranges),
+                    current.singles().merge(singleIps), current.loadedAt());
+        }
+        return ranges.size() + singleIps.size();
+    }
+
+    /**
+     * Full check against the snapshot, used when the database cannot answer.
+     * Single-address and non-IPv4 entries honour their own expiry.
+     */
+    public boolean isBlocked(String ip) {
+        Snapshot current = snapshot;
+        long address = Ipv4.parse(ip);
+        if (address >= 0) {
+            return current.ranges().contains(address)
+                    || current.singles().isActive(address, System.currentTimeMillis() / 1000);
+        }
+        LocalDateTime blockedUntil = current.others().get(ip);
+        return blockedUntil != null && blockedUntil.isAfter(LocalDateTime.now());
+    }
+
+    /**
+     * Check CIDR ranges only; single addresses are left to the database while it is healthy,
+     * so expiries and manual unblocks take effect immediately.
+     */
+    public boolean isBlockedByRange(String ip) {
+        return snapshot.ranges().contains(Ipv4.parse(ip));
+    }
+
+    /**
+     * Time of the last successful refresh, or null if the cache was never loaded.
+     */
+    public LocalDateTime getLoadedAt() {
+        return snapshot.loadedAt();
+    }
+
+
+    private record Snapshot(Map<String, LocalDateTime> others, Ipv4RangeTable ranges,
+                            Ipv4ExpiryTable singles, LocalDateTime loadedAt) {
+
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Ipv4RangeTable.EMPTY, Ipv4ExpiryTable.EMPTY, null);
+    }
+}
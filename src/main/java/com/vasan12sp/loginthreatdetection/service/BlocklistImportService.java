@@ -0,0 +1,350 @@
+package com.vasan12sp.loginthreatdetection.service;
+
+import com.vasan12sp.loginthreatdetection.util.Ipv4;
+import com.vasan12sp.loginthreatdetection.util.LongArray;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Bulk import of threat-intel blocklists (newline-delimited IPv4 addresses / CIDR ranges).
+ *
+ * The feed is streamed through fixed, reused byte buffers and parsed without creating a
+ * String per line. Valid entries are written straight into a PostgreSQL COPY as they are
+ * parsed, then merged into blocked_ips with a single INSERT ... SELECT upsert, and the
+ * resulting ranges and addresses are swapped into the {@link BlocklistCache} in one step.
+ * Blank lines, '#' / ';' comments and anything that is not IPv4 are skipped, as are ranges
+ * broader than blocklist.import.min-prefix-length (a stray 0.0.0.0/0 would block every client).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BlocklistImportService {
+
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_ENTRY_LENGTH = 18;  // "255.255.255.255/32"
+
+    private static final String CREATE_STAGING_SQL =
+        "CREATE TEMP TABLE blocked_ips_import (ip_address VARCHAR(50)) ON COMMIT DROP";
+
+    private static final String COPY_SQL =
+        "COPY blocked_ips_import (ip_address) FROM STDIN";
+
+    private static final String MERGE_SQL =
+        "INSERT INTO blocked_ips (ip_address, blocked_until, reason) " +
+        "SELECT ip_address, ?::timestamp, ?::varchar FROM (SELECT DISTINCT ip_address FROM blocked_ips_import) feed " +
+        "ON CONFLICT (ip_address) DO UPDATE SET " +
+        "blocked_until = GREATEST(blocked_ips.blocked_until, EXCLUDED.blocked_until), " +
+        "blocked_at = CURRENT_TIMESTAMP, " +
+        "reason = EXCLUDED.reason";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlocklistCache blocklistCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${blocklist.import.min-prefix-length:8}")
+    private int minPrefixLength;
+
+    public ImportResult importFeed(InputStream feed, LocalDateTime blockedUntil, String reason) {
+        long start = System.nanoTime();
+        LongArray cidrs = new LongArray(1 << 20);
+        long[] lineCounts = new long[2];  // [lines read, lines skipped]
+
+        Integer upserted = transactionTemplate.execute(status ->
+            jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(CREATE_STAGING_SQL);
+                }
+                copyFeed(connection, feed, cidrs, lineCounts);
+                return merge(connection, blockedUntil, reason);
+            })
+        );
+
+        int ranges = blocklistCache.addImported(cidrs.array(), cidrs.size(), blockedUntil);
+
+        long elapsedNanos = System.nanoTime() - start;
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        long rowsPerSecond = elapsedNanos > 0 ? cidrs.size() * 1_000_000_000L / elapsedNanos : cidrs.size();
+
+        meterRegistry.counter("blocklist.import.rows").increment(cidrs.size());
+        meterRegistry.timer("blocklist.import.duration").record(elapsedNanos, TimeUnit.NANOSECONDS);
+        log.info("Blocklist import finished: {} lines, {} entries, {} skipped, {} rows upserted, {} ranges in {} ms ({} rows/s)",
+                lineCounts[0], cidrs.size(), lineCounts[1], upserted, ranges, elapsedMillis, rowsPerSecond);
+
+        return new ImportResult(lineCounts[0], cidrs.size(), lineCounts[1],
+                upserted != null ? upserted : 0, ranges, elapsedMillis, rowsPerSecond);
+    }
+
+    /**
+     * Parse the feed line by line and stream every valid entry into COPY.
+     */
+    private void copyFeed(Connection connection, InputStream feed, LongArray cidrs, long[] lineCounts)
+            throws SQLException {
+
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        byte[] copyBuffer = new byte[COPY_BUFFER_SIZE];
+        int[] copyLength = new int[1];
+
+        try {
+            scanFeed(feed, READ_BUFFER_SIZE, minPrefixLength, lineCounts, cidr -> {
+                cidrs.add(cidr);
+                if (copyLength[0] + MAX_ENTRY_LENGTH + 1 > copyBuffer.length) {
+                    copyIn.writeToCopy(copyBuffer, 0, copyLength[0]);
+                    copyLength[0] = 0;
+                }
+                copyLength[0] = writeCidr(copyBuffer, copyLength[0], cidr);
+                copyBuffer[copyLength[0]++] = '\n';
+            });
+
+            if (copyLength[0] > 0) {
+                copyIn.writeToCopy(copyBuffer, 0, copyLength[0]);
+            }
+            copyIn.endCopy();
+        } catch (IOException e) {
+            cancelQuietly(copyIn);
+            throw new UncheckedIOException("Failed to read blocklist feed", e);
+        } catch (SQLException | RuntimeException e) {
+            cancelQuietly(copyIn);
+            throw e;
+        }
+    }
+
+    /**
+     * Split the feed into lines through one reused buffer and hand every valid entry to the sink.
+     * A line that does not fit in the buffer is counted as skipped; the last line needs no newline.
+     *
+     * @param lineCounts receives [lines read, lines skipped]
+     */
+    static void scanFeed(InputStream feed, int bufferSize, int minPrefixLength, long[] lineCounts, CidrSink sink)
+            throws IOException, SQLException {
+
+        byte[] readBuffer = new byte[bufferSize];
+        AsciiSlice line = new AsciiSlice(readBuffer);
+        int carried = 0;
+        boolean discarding = false;  // inside a line longer than the buffer
+
+        int read;
+        while ((read = feed.read(readBuffer, carried, readBuffer.length - carried)) != -1 || carried > 0) {
+            int end = read == -1 ? carried : carried + read;
+            boolean lastChunk = read == -1;
+            int lineStart = 0;
+
+            for (int i = 0; i < end; i++) {
+                if (readBuffer[i] == '\n' || (lastChunk && i == end - 1)) {
+                    int lineEnd = readBuffer[i] == '\n' ? i : i + 1;
+                    if (discarding) {
+                        // Tail of an overlong line, already counted
+                        discarding = false;
+                        lineStart = i + 1;
+                        continue;
+                    }
+                    lineCounts[0]++;
+                    long cidr = parseLine(line, lineStart, lineEnd);
+                    if (cidr >= 0 && Ipv4.prefixLength(cidr) < minPrefixLength) {
+                        log.warn("Skipping blocklist range broader than /{}: {}", minPrefixLength, Ipv4.formatCidr(cidr));
+                        cidr = -1;
+                    }
+                    if (cidr >= 0) {
+                        sink.accept(cidr);
+                    } else if (cidr == -1) {
+                        lineCounts[1]++;
+                    }
+                    lineStart = i + 1;
+                }
+            }
+
+            if (lastChunk) {
+                break;
+            }
+
+            // Keep the unfinished tail for the next read; drop absurdly long lines
+            carried = end - lineStart;
+            if (carried == readBuffer.length) {
+                if (!discarding) {
+                    lineCounts[0]++;
+                    lineCounts[1]++;
+                    discarding = true;
+                }
+                carried = 0;
+            } else {
+                System.arraycopy(readBuffer, lineStart, readBuffer, 0, carried);
+            }
+        }
+    }
+
+    private int merge(Connection connection, LocalDateTime blockedUntil, String reason) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(MERGE_SQL)) {
+            ps.setTimestamp(1, Timestamp.valueOf(blockedUntil));
+            ps.setString(2, reason);
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * @return packed CIDR, -1 for an invalid entry, -2 for a blank or comment line
+     */
+    private static long parseLine(AsciiSlice line, int start, int end) {
+        while (start < end && isSpace(line.bytes[start])) {
+            start++;
+        }
+        if (start == end || line.bytes[start] == '#' || line.bytes[start] == ';') {
+            return -2;
+        }
+        int entryEnd = start;
+        while (entryEnd < end && !isSpace(line.bytes[entryEnd])
+                && line.bytes[entryEnd] != '#' && line.bytes[entryEnd] != ';') {
+            entryEnd++;
+        }
+        return Ipv4.parseCidr(line, start, entryEnd);
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == ',';
+    }
+
+    /**
+     * Write a packed CIDR in canonical text form ("a.b.c.d" or "a.b.c.d/n").
+     */
+    private static int writeCidr(byte[] buffer, int pos, long packedCidr) {
+        long address = Ipv4.firstAddress(packedCidr);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            pos = writeDecimal(buffer, pos, (int) ((address >>> shift) & 0xFF));
+            if (shift > 0) {
+                buffer[pos++] = '.';
+            }
+        }
+        int prefix = Ipv4.prefixLength(packedCidr);
+        if (prefix != 32) {
+            buffer[pos++] = '/';
+            pos = writeDecimal(buffer, pos, prefix);
+        }
+        return pos;
+    }
+
+    private static int writeDecimal(byte[] buffer, int pos, int value) {
+        if (value >= 100) {
+            buffer[pos++] = (byte) ('0' + value / 100);
+        }
+        if (value >= 10) {
+            buffer[pos++] = (byte) ('0' + value / 10 % 10);
+        }
+        buffer[pos++] = (byte) ('0' + value % 10);
+        return pos;
+    }
+
+    private static void cancelQuietly(CopyIn copyIn) {
+        try {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        } catch (SQLException e) {
+            log.warn("Failed to cancel COPY: {}", e.getMessage());
+        }
+    }
+
+
+    @FunctionalInterface
+    interface CidrSink {
+        void accept(long packedCidr) throws SQLException;
+    }
+
+
+    /**
+     * CharSequence view over the shared read buffer, so lines can be parsed without copying.
+     */
+    private static final class AsciiSlice implements CharSequence {
+
+        private final byte[] bytes;
+
+        AsciiSlice(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int length() {
+            return bytes.length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(bytes, start, end - start, StandardCharsets.US_ASCII);
+        }
+    }
+
+
+    public static class ImportResult {
+        private final long linesRead;
+        private final long entriesImported;
+        private final long linesSkipped;
+        private final int rowsUpserted;
+        private final int ranges;
+        private final long elapsedMillis;
+        private final long rowsPerSecond;
+
+        public ImportResult(long linesRead, long entriesImported, long linesSkipped, int rowsUpserted,
+                            int ranges, long elapsedMillis, long rowsPerSecond) {
+            this.linesRead = linesRead;
+            this.entriesImported = entriesImported;
+            this.linesSkipped = linesSkipped;
+            this.rowsUpserted = rowsUpserted;
+            this.ranges = ranges;
+            this.elapsedMillis = elapsedMillis;
+            this.rowsPerSecond = rowsPerSecond;
+        }
+
+        public long getLinesRead() {
+            return linesRead;
+        }
+
+        public long getEntriesImported() {
+            return entriesImported;
+        }
+
+        public long getLinesSkipped() {
+            return linesSkipped;
+        }
+
+        public int getRowsUpserted() {
+            return rowsUpserted;
+        }
+
+        public int getRanges() {
+            return ranges;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public long getRowsPerSecond() {
+            return rowsPerSecond;
+        }
+    }
+}
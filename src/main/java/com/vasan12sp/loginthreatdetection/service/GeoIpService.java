@@ -0,0 +1,126 @@
+package com.vasan12sp.loginthreatdetection.service;
+
+import com.vasan12sp.loginthreatdetection.model.LoginEvent;
+import com.vasan12sp.loginthreatdetection.util.Ipv4;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Local IPv4 geolocation used to attach lat/lon to login events.
+ *
+ * The table is a binary file produced by build_geoip_table.py and memory-mapped
+ * read-only, so it costs no heap and is shared with the page cache:
+ *
+ *   header:  "GEO1" magic, uint32 record count              (8 bytes)
+ *   records: uint32 start, uint32 end, float32 lat, float32 lon (16 bytes each)
+ *
+ * All values are little-endian; records are sorted by start and do not overlap.
+ * Lookups are a binary search over the mapped buffer and allocate nothing.
+ * An empty geoip.database-path disables enrichment.
+ */
+@Service
+@Slf4j
+public class GeoIpService {
+
+    private static final byte[] MAGIC = "GEO1".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 16;
+
+    private final MappedByteBuffer table;
+    private final int count;
+
+    public GeoIpService(@Value("${geoip.database-path:}") String databasePath) {
+        if (databasePath == null || databasePath.isBlank()) {
+            log.info("GeoIP enrichment disabled (geoip.database-path not set)");
+            this.table = null;
+            this.count = 0;
+            return;
+        }
+
+        Path path = Path.of(databasePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IllegalStateException("GeoIP table too small: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (buffer.get(i) != MAGIC[i]) {
+                    throw new IllegalStateException("Not a GeoIP table (bad magic): " + path);
+                }
+            }
+            long records = Integer.toUnsignedLong(buffer.getInt(4));
+            if (HEADER_SIZE + records * RECORD_SIZE != size) {
+                throw new IllegalStateException("GeoIP table size does not match its record count: " + path);
+            }
+
+            this.table = buffer;
+            this.count = (int) records;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map GeoIP table " + path, e);
+        }
+        log.info("GeoIP table mapped: {} ranges from {}", count, path);
+    }
+
+    public boolean isEnabled() {
+        return table != null;
+    }
+
+    /**
+     * Attach lat/lon to the event if its IP is covered by the table.
+     */
+    public void enrich(LoginEvent event) {
+        int record = find(Ipv4.parse(event.getIp()));
+        if (record >= 0) {
+            event.setLat((double) latitude(record));
+            event.setLon((double) longitude(record));
+        }
+    }
+
+    /**
+     * @return index of the range containing the address, or -1 if none does
+     */
+    public int find(long address) {
+        if (table == null || address < 0) {
+            return -1;
+        }
+        int key = (int) address;
+        int low = 0;
+        int high = count - 1;
+
+        // Find the last range whose start is <= address
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Integer.compareUnsigned(table.getInt(HEADER_SIZE + mid * RECORD_SIZE), key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (high >= 0 && Integer.compareUnsigned(key, table.getInt(HEADER_SIZE + high * RECORD_SIZE + 4)) <= 0) {
+            return high;
+        }
+        return -1;
+    }
+
+    public float latitude(int record) {
+        return table.getFloat(HEADER_SIZE + record * RECORD_SIZE + 8);
+    }
+
+    public float longitude(int record) {
+        return table.getFloat(HEADER_SIZE + record * RECORD_SIZE + 12);
+    }
+}
@@ -0,0 +1,215 @@
+package com.vasan12sp.loginthreatdetection.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.Principal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+
+/**
+ * Session registry backed by the user_sessions table, so every node sees the same sessions.
+ *
+ * Registration enforces the per-user limit in one transaction: a transaction-scoped advisory
+ * lock on the username serializes concurrent logins of the same user across the cluster,
+ * the user's rows are read through the (username, created_at) index, dead sessions are
+ * pruned and the oldest live sessions are evicted from SPRING_SESSION and user_sessions.
+ * The work is bounded by the limit, not by the number of users or sessions in the system.
+ */
+@Service
+@Slf4j
+public class JdbcSessionRegistry implements SessionRegistry {
+
+    // A freshly registered session has no SPRING_SESSION row until its request completes
+    private static final long PENDING_GRACE_MILLIS = 60_000;
+
+    private static final String LOCK_USER_SQL =
+        "SELECT pg_advisory_xact_lock(hashtext(?))";
+
+    private static final String USER_SESSIONS_SQL =
+        "SELECT us.session_id, us.username, us.created_at, s.LAST_ACCESS_TIME, s.EXPIRY_TIME " +
+        "FROM user_sessions us " +
+        "LEFT JOIN SPRING_SESSION s ON s.SESSION_ID = CAST(us.session_id AS CHAR(36)) " +
+        "WHERE us.username = ? ORDER BY us.created_at";
+
+    private static final String SESSION_SQL =
+        "SELECT us.session_id, us.username, us.created_at, s.LAST_ACCESS_TIME, s.EXPIRY_TIME " +
+        "FROM user_sessions us " +
+        "LEFT JOIN SPRING_SESSION s ON s.SESSION_ID = CAST(us.session_id AS CHAR(36)) " +
+        "WHERE us.session_id = ?";
+
+    private static final String UPSERT_SESSION_SQL =
+        "INSERT INTO user_sessions (session_id, username, ip_address, created_at) VALUES (?, ?, ?, ?) " +
+        "ON CONFLICT (session_id) DO UPDATE SET " +
+        "username = EXCLUDED.username, ip_address = EXCLUDED.ip_address, created_at = EXCLUDED.created_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxSessionsPerUser;
+    private final Counter evictions;
+
+    public JdbcSessionRegistry(JdbcTemplate jdbcTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${security.session.max-per-user:3}") int maxSessionsPerUser) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxSessionsPerUser = maxSessionsPerUser;
+        this.evictions = Counter.builder("auth.sessions.evicted")
+                .description("Live sessions evicted because the user reached the concurrent-session limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Register a session after a successful login, evicting the user's oldest
+     * sessions if this one would exceed the limit.
+     *
+     * @return ids of the live sessions that were evicted
+     */
+    @Transactional
+    public List<String> registerSession(String sessionId, String username, String ipAddress) {
+        jdbcTemplate.query(LOCK_USER_SQL, rs -> { }, "user_sessions:" + username);
+
+        long now = System.currentTimeMillis();
+        List<String> live = new ArrayList<>();
+        List<String> dead = new ArrayList<>();
+        for (SessionRow row : jdbcTemplate.query(USER_SESSIONS_SQL, JdbcSessionRegistry::mapRow, username)) {
+            if (row.sessionId().equals(sessionId)) {
+                continue;
+            }
+            (row.isExpired(now) ? dead : live).add(row.sessionId());
+        }
+
+        // Rows are ordered oldest first
+        int excess = live.size() - maxSessionsPerUser + 1;
+        List<String> evicted = excess > 0 ? new ArrayList<>(live.subList(0, excess)) : List.of();
+
+        List<String> removed = new ArrayList<>(dead);
+        removed.addAll(evicted);
+        if (!removed.isEmpty()) {
+            deleteSessions(removed);
+        }
+
+        jdbcTemplate.update(UPSERT_SESSION_SQL, sessionId, username, ipAddress, Timestamp.valueOf(LocalDateTime.now()));
+
+        if (!evicted.isEmpty()) {
+            evictions.increment(evicted.size());
+            log.info("Session limit ({}) reached for user: {}, evicted oldest session(s): {}",
+                    maxSessionsPerUser, username, evicted);
+        }
+        log.info("Session registered: {} for user: {} from IP: {}", sessionId, username, ipAddress);
+        return evicted;
+    }
+
+    @Override
+    public void registerNewSession(String sessionId, Object principal) {
+        registerSession(sessionId, nameOf(principal), "unknown");
+    }
+
+    @Override
+    public void removeSessionInformation(String sessionId) {
+        jdbcTemplate.update("DELETE FROM user_sessions WHERE session_id = ?", sessionId);
+    }
+
+    /**
+     * No-op: Spring Session already maintains LAST_ACCESS_TIME on every request.
+     */
+    @Override
+    public void refreshLastRequest(String sessionId) {
+    }
+
+    @Override
+    public List<Object> getAllPrincipals() {
+        return new ArrayList<>(jdbcTemplate.queryForList("SELECT DISTINCT username FROM user_sessions", String.class));
+    }
+
+    @Override
+    public List<SessionInformation> getAllSessions(Object principal, boolean includeExpiredSessions) {
+        long now = System.currentTimeMillis();
+        List<SessionInformation> sessions = new ArrayList<>();
+        for (SessionRow row : jdbcTemplate.query(USER_SESSIONS_SQL, JdbcSessionRegistry::mapRow, nameOf(principal))) {
+            boolean expired = row.isExpired(now);
+            if (!expired || includeExpiredSessions) {
+                sessions.add(row.toSessionInformation(now));
+            }
+        }
+        return sessions;
+    }
+
+    @Override
+    public SessionInformation getSessionInformation(String sessionId) {
+        List<SessionRow> rows = jdbcTemplate.query(SESSION_SQL, JdbcSessionRegistry::mapRow, sessionId);
+        return rows.isEmpty() ? null : rows.get(0).toSessionInformation(System.currentTimeMillis());
+    }
+
+    private void deleteSessions(List<String> sessionIds) {
+        String[] ids = sessionIds.toArray(new String[0]);
+        jdbcTemplate.update(
+            "DELETE FROM SPRING_SESSION WHERE SESSION_ID = ANY(CAST(? AS CHAR(36)[]))",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", ids))
+        );
+        jdbcTemplate.update(
+            "DELETE FROM user_sessions WHERE session_id = ANY(?)",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", ids))
+        );
+    }
+
+    private static String nameOf(Object principal) {
+        if (principal instanceof UserDetails userDetails) {
+            return userDetails.getUsername();
+        }
+        if (principal instanceof Principal named) {
+            return named.getName();
+        }
+        return String.valueOf(principal);
+    }
+
+    private static SessionRow mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Timestamp createdAt = rs.getTimestamp(3);
+        long lastAccess = rs.getLong(4);
+        boolean hasSession = !rs.wasNull();
+        long expiry = rs.getLong(5);
+        return new SessionRow(
+            rs.getString(1),
+            rs.getString(2),
+            createdAt != null ? createdAt.getTime() : 0L,
+            hasSession ? lastAccess : null,
+            hasSession ? expiry : null
+        );
+    }
+
+
+    private record SessionRow(String sessionId, String username, long createdAt, Long lastAccess, Long expiry) {
+
+        /**
+         * Dead if Spring Session expired it, or if its SPRING_SESSION row is gone
+         * (logout, revocation, expiry cleanup) and it is past the pending grace.
+         */
+        boolean isExpired(long now) {
+            if (expiry != null) {
+                return expiry < now;
+            }
+            return now - createdAt > PENDING_GRACE_MILLIS;
+        }
+
+        SessionInformation toSessionInformation(long now) {
+            SessionInformation information = new SessionInformation(
+                    username, sessionId, new Date(lastAccess != null ? lastAccess : createdAt));
+            if (isExpired(now)) {
+                information.expireNow();
+            }
+            return information;
+        }
+    }
+}
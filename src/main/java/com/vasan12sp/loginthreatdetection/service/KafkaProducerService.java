@@ -2,30 +2,208 @@ package com.vasan12sp.loginthreatdetection.service;
 
 import tools.jackson.databind.ObjectMapper;
 import com.vasan12sp.loginthreatdetection.model.LoginEvent;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Kafka Producer Service - Part of "The Broker" component.
  * Sends login events to Kafka asynchronously (Fire and Forget).
+ * Every event is enriched with lat/lon from {@link GeoIpService} just before it is published.
+ *
+ * Optional failure pre-aggregation (login-events.aggregation.enabled): within a short
+ * tumbling window per IP, the first N failures are forwarded unchanged and the rest
+ * are folded into one FAILURE summary (count, first/last timestamp, distinct usernames)
+ * emitted when the window closes. UNKNOWN-priority SHED attempts are folded into the same
+ * window; TRUSTED ones are forwarded unchanged, since the detectors do not count them.
+ * SUCCESS events are always forwarded, after flushing
+ * the IP's pending summary so the detectors see events in order.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class KafkaProducerService {
 
-    private static final String TOPIC = "auth-events";
+    static final String TOPIC = "auth-events";
 
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final ObjectMapper objectMapper;
+    private final GeoIpService geoIpService;
+
+    private final boolean aggregationEnabled;
+    private final long windowMillis;
+    private final int passThrough;
+    private final int maxUsernames;
+    private final int maxTrackedIps;
+
+    private final Map<String, FailureWindow> windows = new ConcurrentHashMap<>();
+    private final Counter aggregatedFailures;
+    private final Counter summariesSent;
+
+    public KafkaProducerService(KafkaTemplate<String, String> kafkaTemplate,
+                                ObjectMapper objectMapper,
+                                GeoIpService geoIpService,
+                                MeterRegistry meterRegistry,
+                                @Value("${login-events.aggregation.enabled:false}") boolean aggregationEnabled,
+                                @Value("${login-events.aggregation.window-ms:1000}") long windowMillis,
+                                @Value("${login-events.aggregation.pass-through:10}") int passThrough,
+                                @Value("${login-events.aggregation.max-usernames:50}") int maxUsernames,
+                                @Value("${login-events.aggregation.max-tracked-ips:100000}") int maxTrackedIps) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.geoIpService = geoIpService;
+        this.aggregationEnabled = aggregationEnabled;
+        this.windowMillis = windowMillis;
+        this.passThrough = passThrough;
+        this.maxUsernames = maxUsernames;
+        this.maxTrackedIps = maxTrackedIps;
+        this.aggregatedFailures = Counter.builder("login.events.aggregated")
+                .description("FAILURE events folded into a summary instead of being sent individually")
+                .register(meterRegistry);
+        this.summariesSent = Counter.builder("login.events.summaries")
+                .description("Aggregated FAILURE summary events sent to Kafka")
+                .register(meterRegistry);
+    }
 
     /**
      * Send login event to Kafka topic asynchronously.
      * This is Fire-and-Forget: we don't wait for acknowledgment.
      */
     public void sendLoginEvent(LoginEvent event) {
+        if (!aggregationEnabled || event.getIp() == null) {
+            send(event);
+            return;
+        }
+
+        if (countsAsFailure(event)) {
+            aggregateFailure(event);
+        } else if ("SHED".equals(event.getStatus())) {
+            // Trusted sheds are not failures; nothing to flush ahead of them
+            send(event);
+        } else {
+            FailureWindow window = windows.remove(event.getIp());
+            if (window != null) {
+                sendSummary(event.getIp(), window);
+            }
+            send(event);
+        }
+    }
+
+    /**
+     * Emit the summaries of windows that have closed. Runs once per window length,
+     * so a summary is delayed by at most two windows.
+     */
+    @Scheduled(fixedDelayString = "${login-events.aggregation.window-ms:1000}")
+    public void flushExpiredWindows() {
+        if (!aggregationEnabled || windows.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, FailureWindow>> closed = new ArrayList<>();
+        for (String ip : windows.keySet()) {
+            windows.computeIfPresent(ip, (key, window) -> {
+                if (now - window.startedAt < windowMillis) {
+                    return window;
+                }
+                closed.add(Map.entry(key, window));
+                return null;
+            });
+        }
+        for (Map.Entry<String, FailureWindow> entry : closed) {
+            sendSummary(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Emit every pending summary on shutdown, open windows included, so folded
+     * failures are not lost, then wait for the producer to hand them to the broker.
+     */
+    @PreDestroy
+    public void flushAllWindows() {
+        if (windows.isEmpty()) {
+            return;
+        }
+        int flushed = 0;
+        for (String ip : windows.keySet()) {
+            FailureWindow window = windows.remove(ip);
+            if (window != null) {
+                sendSummary(ip, window);
+                flushed++;
+            }
+        }
+        kafkaTemplate.flush();
+        log.info("Flushed {} pending failure window(s) on shutdown", flushed);
+    }
+
+    private static boolean countsAsFailure(LoginEvent event) {
+        if ("SHED".equals(event.getStatus())) {
+            return !PasswordVerificationExecutor.Priority.TRUSTED.name().equals(event.getPriority());
+        }
+        return "FAILURE".equals(event.getStatus());
+    }
+
+    private void aggregateFailure(LoginEvent event) {
+        long now = System.currentTimeMillis();
+        Decision decision = new Decision();
+
+        windows.compute(event.getIp(), (ip, window) -> {
+            if (window == null) {
+                if (windows.size() >= maxTrackedIps) {
+                    // Too many IPs in flight: degrade to plain forwarding rather than grow without bound
+                    decision.forward = true;
+                    return null;
+                }
+                window = new FailureWindow(now);
+            } else if (now - window.startedAt >= windowMillis) {
+                decision.closed = window;
+                window = new FailureWindow(now);
+            }
+
+            if (window.forwarded < passThrough) {
+                window.forwarded++;
+                decision.forward = true;
+            } else {
+                window.add(event, maxUsernames);
+            }
+            return window;
+        });
+
+        if (decision.closed != null) {
+            sendSummary(event.getIp(), decision.closed);
+        }
+        if (decision.forward) {
+            send(event);
+        } else {
+            aggregatedFailures.increment();
+        }
+    }
+
+    private void sendSummary(String ip, FailureWindow window) {
+        if (window.count == 0) {
+            return;
+        }
+        LoginEvent summary = new LoginEvent(ip, "FAILURE", window.lastTimestamp, window.lastUsername);
+        summary.setCount(window.count);
+        summary.setFirstTimestamp(window.firstTimestamp);
+        summary.setUsernames(new ArrayList<>(window.usernames));
+        summariesSent.increment();
+        send(summary);
+    }
+
+    private void send(LoginEvent event) {
+        geoIpService.enrich(event);
         try {
             String jsonMessage = objectMapper.writeValueAsString(event);
 
@@ -43,4 +221,41 @@ public class KafkaProducerService {
             log.error("Failed to serialize login event", e);
         }
     }
+
+
+    /**
+     * Failures seen for one IP in the current window. Only mutated inside
+     * ConcurrentHashMap.compute for its key, so it needs no locking of its own.
+     */
+    private static final class FailureWindow {
+        final long startedAt;
+        int forwarded;
+        int count;
+        Instant firstTimestamp;
+        Instant lastTimestamp;
+        String lastUsername;
+        final Set<String> usernames = new LinkedHashSet<>();
+
+        FailureWindow(long startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        void add(LoginEvent event, int maxUsernames) {
+            if (count++ == 0) {
+                firstTimestamp = event.getTimestamp();
+            }
+            lastTimestamp = event.getTimestamp();
+            if (event.getUsername() != null) {
+                lastUsername = event.getUsername();
+                if (usernames.size() < maxUsernames) {
+                    usernames.add(event.getUsername());
+                }
+            }
+        }
+    }
+
+    private static final class Decision {
+        boolean forward;
+        FailureWindow closed;
+    }
 }
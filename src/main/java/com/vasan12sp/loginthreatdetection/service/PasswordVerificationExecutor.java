@@ -0,0 +1,218 @@
+package com.vasan12sp.loginthreatdetection.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Dedicated pool for the CPU-bound password verification step of a login.
+ * Runs BCrypt on a fixed set of threads sized to the available cores, so request
+ * threads only wait for the result instead of competing for CPU. Known-good clients
+ * (recent successful login from the same IP and username, or a valid session of that same user)
+ * are queued ahead of unknown traffic, and the queue sheds load when it is full.
+ * A share of the capacity is reserved for known-good clients, so a flood of unknown
+ * attempts is shed before it can take the last slots.
+ */
+@Service
+@Slf4j
+public class PasswordVerificationExecutor {
+
+    public enum Priority {
+        TRUSTED,
+        UNKNOWN
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore capacity;
+    private final Semaphore unknownCapacity;
+    private final AtomicLong sequence = new AtomicLong();
+    private final long trustedTtlMillis;
+    private final int maxTrackedClients;
+
+    // "ip|username" -> time of last successful login
+    private final Map<String, Long> recentSuccesses = new ConcurrentHashMap<>();
+
+    public PasswordVerificationExecutor(
+            @Value("${auth.verification.threads:0}") int threads,
+            @Value("${auth.verification.queue-capacity:256}") int queueCapacity,
+            @Value("${auth.verification.trusted-reserve:64}") int trustedReserve,
+            @Value("${auth.verification.trusted-ttl-minutes:1440}") long trustedTtlMinutes,
+            @Value("${auth.verification.max-tracked-clients:100000}") int maxTrackedClients) {
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-verify-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.prestartAllCoreThreads();
+
+        // Running tasks hold a permit too, so capacity covers queued + in-flight work
+        this.capacity = new Semaphore(poolSize + queueCapacity);
+        // Unknown traffic can never hold the slots reserved for trusted clients
+        int reserved = Math.max(0, Math.min(trustedReserve, poolSize + queueCapacity - 1));
+        this.unknownCapacity = new Semaphore(poolSize + queueCapacity - reserved);
+        this.trustedTtlMillis = TimeUnit.MINUTES.toMillis(trustedTtlMinutes);
+        this.maxTrackedClients = maxTrackedClients;
+
+        log.info("Password verification pool started: {} threads, queue capacity {}, {} slots reserved for trusted clients",
+                poolSize, queueCapacity, reserved);
+    }
+
+    /**
+     * Run the verification on the dedicated pool and wait for its result.
+     * Exceptions thrown by the task (e.g. BadCredentialsException) are rethrown as-is.
+     *
+     * @throws VerificationRejectedException if the queue is full or the wait is interrupted
+     */
+    public Authentication verify(Callable<Authentication> task, Priority priority) {
+        boolean unknown = priority != Priority.TRUSTED;
+        if (unknown && !unknownCapacity.tryAcquire()) {
+            throw new VerificationRejectedException("Password verification queue is full");
+        }
+        if (!capacity.tryAcquire()) {
+            if (unknown) {
+                unknownCapacity.release();
+            }
+            throw new VerificationRejectedException("Password verification queue is full");
+        }
+
+        PrioritizedTask prioritizedTask = new PrioritizedTask(task, priority, sequence.getAndIncrement());
+        try {
+            executor.execute(prioritizedTask);
+        } catch (RuntimeException e) {
+            prioritizedTask.releaseCapacity();
+            throw new VerificationRejectedException("Password verification pool is unavailable");
+        }
+
+        try {
+            return prioritizedTask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            prioritizedTask.cancel(false);
+            throw new VerificationRejectedException("Interrupted while waiting for password verification");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Password verification failed", cause);
+        }
+    }
+
+    /**
+     * Decide the queue priority for a login attempt.
+     *
+     * @param hasOwnSession the request carries a valid session authenticated as this same username
+     */
+    public Priority priorityFor(String ip, String username, boolean hasOwnSession) {
+        if (hasOwnSession) {
+            return Priority.TRUSTED;
+        }
+        Long lastSuccess = recentSuccesses.get(clientKey(ip, username));
+        if (lastSuccess != null && System.currentTimeMillis() - lastSuccess < trustedTtlMillis) {
+            return Priority.TRUSTED;
+        }
+        return Priority.UNKNOWN;
+    }
+
+    /**
+     * Remember a successful login so later attempts from the same IP and username are prioritized.
+     */
+    public void recordSuccess(String ip, String username) {
+        if (recentSuccesses.size() >= maxTrackedClients) {
+            pruneExpired();
+        }
+        if (recentSuccesses.size() < maxTrackedClients) {
+            recentSuccesses.put(clientKey(ip, username), System.currentTimeMillis());
+        }
+    }
+
+    int queuedTasks() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void pruneExpired() {
+        long cutoff = System.currentTimeMillis() - trustedTtlMillis;
+        recentSuccesses.values().removeIf(timestamp -> timestamp < cutoff);
+    }
+
+    private static String clientKey(String ip, String username) {
+        return ip + "|" + username;
+    }
+
+
+    /**
+     * Queue entry ordered by priority first, then by submission order.
+     */
+    private final class PrioritizedTask extends FutureTask<Authentication>
+            implements Comparable<PrioritizedTask> {
+
+        private final Priority priority;
+        private final long sequenceNumber;
+
+        PrioritizedTask(Callable<Authentication> callable, Priority priority, long sequenceNumber) {
+            super(callable);
+            this.priority = priority;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        @Override
+        protected void done() {
+            releaseCapacity();
+        }
+
+        void releaseCapacity() {
+            capacity.release();
+            if (priority != Priority.TRUSTED) {
+                unknownCapacity.release();
+            }
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+    }
+
+
+    /**
+     * Thrown when a verification cannot be queued; callers should answer with 503.
+     */
+    public static class VerificationRejectedException extends RuntimeException {
+
+        public VerificationRejectedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -2,13 +2,18 @@ package com.vasan12sp.loginthreatdetection.service;
 
 import com.vasan12sp.loginthreatdetection.entity.UserSession;
 import com.vasan12sp.loginthreatdetection.repository.UserSessionRepository;
+import com.vasan12sp.loginthreatdetection.util.Ipv4;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 
 /**
@@ -24,15 +29,6 @@ public class SessionRevocationService {
     private final UserSessionRepository userSessionRepository;
     private final JdbcTemplate jdbcTemplate;
 
-    /**
-     * Register a new session when a user successfully logs in.
-     */
-    public void registerSession(String sessionId, String username, String ipAddress) {
-        UserSession session = new UserSession(sessionId, username, ipAddress);
-        userSessionRepository.save(session);
-        log.info("Session registered: {} for user: {} from IP: {}", sessionId, username, ipAddress);
-    }
-
     /**
      * Remove a session record (on logout or invalidation).
      */
@@ -70,6 +66,59 @@ public class SessionRevocationService {
         log.info("All sessions revoked for IP: {} (count: {})", ipAddress, sessions.size());
     }
 
+    /**
+     * Set-based revocation for a whole batch of blocked targets (IPs or IPv4 CIDR ranges).
+     * Issues one DELETE per table regardless of how many targets are in the batch.
+     *
+     * @return number of sessions revoked
+     */
+    @Transactional
+    public int revokeSessionsByTargets(Collection<String> targets) {
+        Set<String> ips = new HashSet<>();
+        List<Long> ranges = new ArrayList<>();
+        for (String target : targets) {
+            if (Ipv4.isCidr(target)) {
+                long range = Ipv4.parseCidr(target);
+                if (range >= 0) {
+                    ranges.add(range);
+                }
+            } else {
+                ips.add(target);
+            }
+        }
+
+        // CIDR targets are rare; resolve them to the concrete session IPs they cover
+        if (!ranges.isEmpty()) {
+            jdbcTemplate.query("SELECT DISTINCT ip_address FROM user_sessions", rs -> {
+                String ip = rs.getString(1);
+                long address = Ipv4.parse(ip);
+                if (address >= 0 && ranges.stream().anyMatch(range -> Ipv4.contains(range, address))) {
+                    ips.add(ip);
+                }
+            });
+        }
+
+        if (ips.isEmpty()) {
+            return 0;
+        }
+
+        String[] ipArray = ips.toArray(new String[0]);
+        jdbcTemplate.update(
+            "DELETE FROM SPRING_SESSION WHERE SESSION_ID IN " +
+            "(SELECT session_id FROM user_sessions WHERE ip_address = ANY(?))",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", ipArray))
+        );
+        int revoked = jdbcTemplate.update(
+            "DELETE FROM user_sessions WHERE ip_address = ANY(?)",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", ipArray))
+        );
+
+        if (revoked > 0) {
+            log.info("Revoked {} session(s) across {} blocked IP(s)", revoked, ipArray.length);
+        }
+        return revoked;
+    }
+
     /**
      * Revoke all sessions for a specific username.
      */
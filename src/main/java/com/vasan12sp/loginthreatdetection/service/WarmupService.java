@@ -0,0 +1,233 @@
+package com.vasan12sp.loginthreatdetection.service;
+
+import tools.jackson.databind.ObjectMapper;
+import com.vasan12sp.loginthreatdetection.model.LoginEvent;
+import com.vasan12sp.loginthreatdetection.model.LoginRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.Environment;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Warm-up phase that runs before the instance reports ready.
+ * Spring Boot only flips readiness to ACCEPTING_TRAFFIC after all ApplicationRunners
+ * have finished, so /actuator/health/readiness stays OUT_OF_SERVICE until the
+ * connection pool, Kafka metadata and blocklist cache are loaded and the filter and
+ * login paths have served real HTTP requests. The embedded server is already listening
+ * while runners execute, so synthetic requests go to the local port from TEST-NET-3
+ * addresses and carry the {@link WarmupTraffic} token, which keeps their events out of
+ * Kafka. Every step is best-effort: a failing dependency is logged, not fatal.
+ */
+@Service
+@Slf4j
+public class WarmupService implements ApplicationRunner {
+
+    private static final String SYNTHETIC_USERNAME = "__warmup__";
+    private static final String SYNTHETIC_PASSWORD = "__warmup__";
+    private static final String SYNTHETIC_IP_PREFIX = "203.0.113.";
+
+    private final DataSource dataSource;
+    private final BlocklistCache blocklistCache;
+    private final GeoIpService geoIpService;
+    private final WarmupTraffic warmupTraffic;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+
+    private final boolean enabled;
+    private final int poolConnections;
+    private final int filterIterations;
+    private final int loginIterations;
+    private final long kafkaTimeoutMillis;
+
+    public WarmupService(DataSource dataSource,
+                         BlocklistCache blocklistCache,
+                         GeoIpService geoIpService,
+                         WarmupTraffic warmupTraffic,
+                         KafkaTemplate<String, String> kafkaTemplate,
+                         ObjectMapper objectMapper,
+                         ApplicationEventPublisher eventPublisher,
+                         MeterRegistry meterRegistry,
+                         Environment environment,
+                         @Value("${warmup.enabled:true}") boolean enabled,
+                         @Value("${warmup.pool-connections:10}") int poolConnections,
+                         @Value("${warmup.filter-iterations:500}") int filterIterations,
+                         @Value("${warmup.login-iterations:5}") int loginIterations,
+                         @Value("${warmup.kafka-timeout-ms:10000}") long kafkaTimeoutMillis) {
+        this.dataSource = dataSource;
+        this.blocklistCache = blocklistCache;
+        this.geoIpService = geoIpService;
+        this.warmupTraffic = warmupTraffic;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.environment = environment;
+        this.enabled = enabled;
+        this.poolConnections = poolConnections;
+        this.filterIterations = filterIterations;
+        this.loginIterations = loginIterations;
+        this.kafkaTimeoutMillis = kafkaTimeoutMillis;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            log.info("Warm-up disabled");
+            return;
+        }
+
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        log.info("Warm-up started, instance is not ready yet");
+        long start = System.nanoTime();
+
+        step("connection pool", this::primeConnectionPool);
+        step("blocklist cache", blocklistCache::refresh);
+        step("kafka", this::primeKafka);
+        step("event serialization", this::exerciseEventSerialization);
+
+        String baseUrl = localBaseUrl();
+        if (baseUrl == null) {
+            log.info("Warm-up skipping HTTP paths: no local web server port");
+        } else {
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+            warmupTraffic.start();
+            try {
+                step("filter path", () -> exerciseFilterPath(client, baseUrl));
+                step("login path", () -> exerciseLoginPath(client, baseUrl));
+            } finally {
+                warmupTraffic.finish();
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        meterRegistry.timer("app.warmup.duration").record(elapsedNanos, TimeUnit.NANOSECONDS);
+        log.info("Warm-up finished in {} ms, instance will report ready", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    /**
+     * Hold several connections at once so the pool opens them now, not under load.
+     */
+    private void primeConnectionPool() throws Exception {
+        List<Connection> connections = new ArrayList<>(poolConnections);
+        try {
+            for (int i = 0; i < poolConnections; i++) {
+                Connection connection = dataSource.getConnection();
+                connections.add(connection);
+                connection.isValid(1);
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Fetch topic metadata, which opens the producer's broker connection.
+     * No events are sent, so the detectors never see warm-up traffic.
+     */
+    private void primeKafka() throws Exception {
+        CompletableFuture.runAsync(() -> kafkaTemplate.partitionsFor(KafkaProducerService.TOPIC))
+                .get(kafkaTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Exercise event enrichment and serialization, which warm-up requests skip because
+     * their events are suppressed. Uses TEST-NET-3 documentation addresses.
+     */
+    private void exerciseEventSerialization() {
+        for (int i = 0; i < filterIterations; i++) {
+            LoginEvent event = new LoginEvent(SYNTHETIC_IP_PREFIX + (i % 256), "FAILURE", Instant.now(), SYNTHETIC_USERNAME);
+            geoIpService.enrich(event);
+            objectMapper.writeValueAsString(event);
+        }
+    }
+
+    /**
+     * Send GET requests through BlockedIpSessionFilter (blocklist check), the security
+     * filter chain, a controller and JSON response writing.
+     */
+    private void exerciseFilterPath(HttpClient client, String baseUrl) throws Exception {
+        int[] statuses = new int[6];
+        for (int i = 0; i < filterIterations; i++) {
+            HttpRequest request = synthetic(baseUrl + "/api/auth/health", i).GET().build();
+            statuses[client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() / 100]++;
+        }
+        log.debug("Warm-up filter path: {} requests, {} 2xx", filterIterations, statuses[2]);
+    }
+
+    /**
+     * Post logins for a non-existent user through the whole login path: JSON request binding,
+     * AuthController, block check and the verification pool. Spring Security still performs
+     * a full BCrypt comparison for unknown users, so this compiles the code real logins use.
+     */
+    private void exerciseLoginPath(HttpClient client, String baseUrl) throws Exception {
+        String body = objectMapper.writeValueAsString(new LoginRequest(SYNTHETIC_USERNAME, SYNTHETIC_PASSWORD));
+        int rejected = 0;
+        for (int i = 0; i < loginIterations; i++) {
+            HttpRequest request = synthetic(baseUrl + "/api/auth/login", i)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 401) {
+                rejected++;
+            }
+        }
+        log.debug("Warm-up login path: {} requests, {} rejected as expected", loginIterations, rejected);
+    }
+
+    private HttpRequest.Builder synthetic(String url, int i) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(10))
+                .header("X-Forwarded-For", SYNTHETIC_IP_PREFIX + (i % 256))
+                .header(WarmupTraffic.HEADER, warmupTraffic.token());
+    }
+
+    private String localBaseUrl() {
+        String port = environment.getProperty("local.server.port");
+        if (port == null) {
+            return null;
+        }
+        return "http://127.0.0.1:" + port + environment.getProperty("server.servlet.context-path", "");
+    }
+
+    private void step(String name, WarmupStep warmupStep) {
+        long start = System.nanoTime();
+        try {
+            warmupStep.run();
+            log.info("Warm-up step '{}' done in {} ms", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            log.warn("Warm-up step '{}' failed after {} ms: {}",
+                    name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface WarmupStep {
+        void run() throws Exception;
+    }
+}
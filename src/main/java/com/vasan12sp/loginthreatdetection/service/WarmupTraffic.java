@@ -0,0 +1,52 @@
+package com.vasan12sp.loginthreatdetection.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+
+/**
+ * Marks the synthetic requests {@link WarmupService} sends to the local port, so their
+ * login events are not published and they do not count as the first real request.
+ * Requests are recognised by a random per-process token that is only honoured while
+ * warm-up runs, so the header cannot be used to hide real traffic from the detectors.
+ */
+@Service
+public class WarmupTraffic {
+
+    public static final String HEADER = "X-Warmup-Token";
+
+    private final String token;
+    private volatile boolean active;
+
+    public WarmupTraffic() {
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes(random);
+        this.token = HexFormat.of().formatHex(random);
+    }
+
+    String token() {
+        return token;
+    }
+
+    void start() {
+        active = true;
+    }
+
+    void finish() {
+        active = false;
+    }
+
+    public boolean isSynthetic(HttpServletRequest request) {
+        if (!active) {
+            return false;
+        }
+        String header = request.getHeader(HEADER);
+        return header != null && MessageDigest.isEqual(
+                token.getBytes(StandardCharsets.US_ASCII), header.getBytes(StandardCharsets.US_ASCII));
+    }
+}
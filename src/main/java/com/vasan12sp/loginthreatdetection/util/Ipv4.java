@@ -0,0 +1,134 @@
+package com.vasan12sp.loginthreatdetection.util;
+
+
+/**
+ * Allocation-free helpers for IPv4 addresses and CIDR ranges.
+ * Addresses are represented as unsigned 32-bit values held in a long;
+ * -1 signals input that is not a valid IPv4 address or range.
+ */
+public final class Ipv4 {
+
+    private Ipv4() {
+    }
+
+    /**
+     * Parse a dotted-quad address, e.g. "192.168.1.10".
+     */
+    public static long parse(CharSequence text) {
+        return text == null ? -1 : parse(text, 0, text.length());
+    }
+
+    /**
+     * Parse a dotted-quad address from text[start, end).
+     */
+    public static long parse(CharSequence text, int start, int end) {
+        long address = 0;
+        int octets = 0;
+        int value = -1;
+
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value < 0 ? c - '0' : value * 10 + (c - '0');
+                if (value > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && value >= 0 && octets < 3) {
+                address = (address << 8) | value;
+                octets++;
+                value = -1;
+            } else {
+                return -1;
+            }
+        }
+
+        if (value < 0 || octets != 3) {
+            return -1;
+        }
+        return (address << 8) | value;
+    }
+
+    /**
+     * Parse "a.b.c.d/n" (or a bare address, treated as /32) into a packed
+     * value: network address in the upper bits, prefix length in the low 6 bits.
+     * Host bits below the prefix are cleared.
+     */
+    public static long parseCidr(CharSequence text) {
+        return text == null ? -1 : parseCidr(text, 0, text.length());
+    }
+
+    public static long parseCidr(CharSequence text, int start, int end) {
+        int slash = -1;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '/') {
+                slash = i;
+                break;
+            }
+        }
+
+        int prefix = 32;
+        long address;
+        if (slash < 0) {
+            address = parse(text, start, end);
+        } else {
+            address = parse(text, start, slash);
+            prefix = parsePrefix(text, slash + 1, end);
+        }
+
+        if (address < 0 || prefix < 0) {
+            return -1;
+        }
+        return (address & mask(prefix)) << 6 | prefix;
+    }
+
+    public static long firstAddress(long packedCidr) {
+        return packedCidr >>> 6;
+    }
+
+    public static long lastAddress(long packedCidr) {
+        int prefix = (int) (packedCidr & 0x3F);
+        return (packedCidr >>> 6) | (~mask(prefix) & 0xFFFFFFFFL);
+    }
+
+    public static int prefixLength(long packedCidr) {
+        return (int) (packedCidr & 0x3F);
+    }
+
+    public static boolean contains(long packedCidr, long address) {
+        return address >= firstAddress(packedCidr) && address <= lastAddress(packedCidr);
+    }
+
+    public static boolean isCidr(String text) {
+        return text != null && text.indexOf('/') >= 0;
+    }
+
+    public static String format(long address) {
+        return ((address >>> 24) & 0xFF) + "." + ((address >>> 16) & 0xFF) + "."
+                + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+    }
+
+    public static String formatCidr(long packedCidr) {
+        int prefix = prefixLength(packedCidr);
+        String address = format(firstAddress(packedCidr));
+        return prefix == 32 ? address : address + "/" + prefix;
+    }
+
+    private static int parsePrefix(CharSequence text, int start, int end) {
+        if (start >= end || end - start > 2) {
+            return -1;
+        }
+        int prefix = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            prefix = prefix * 10 + (c - '0');
+        }
+        return prefix <= 32 ? prefix : -1;
+    }
+
+    private static long mask(int prefix) {
+        return prefix == 0 ? 0 : (0xFFFFFFFFL << (32 - prefix)) & 0xFFFFFFFFL;
+    }
+}
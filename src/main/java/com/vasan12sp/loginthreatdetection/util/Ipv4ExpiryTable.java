@@ -0,0 +1,123 @@
+package com.vasan12sp.loginthreatdetection.util;
+
+import java.util.Arrays;
+
+
+/**
+ * Immutable, sorted table of single IPv4 addresses, each with its own expiry.
+ * Addresses and expiries (epoch seconds) are held in two parallel int arrays
+ * (8 bytes per entry), and lookups are a binary search that allocates nothing.
+ */
+public final class Ipv4ExpiryTable {
+
+    public static final Ipv4ExpiryTable EMPTY = new Ipv4ExpiryTable(new int[0], new int[0]);
+
+    private final int[] addresses;
+    private final int[] expiresAt;
+
+    private Ipv4ExpiryTable(int[] addresses, int[] expiresAt) {
+        this.addresses = addresses;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Pack an address and its expiry into one sortable long for {@link #fromPacked}.
+     * The address's sign bit is flipped so signed ordering equals unsigned address ordering.
+     */
+    public static long pack(long address, long expiresAtEpochSeconds) {
+        return ((address ^ 0x80000000L) << 32) | (expiresAtEpochSeconds & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Build a table from packed entries (see {@link #pack}). The array is sorted in place;
+     * an address listed more than once keeps its latest expiry.
+     */
+    public static Ipv4ExpiryTable fromPacked(long[] packed, int count) {
+        Arrays.sort(packed, 0, count);
+
+        int[] addresses = new int[count];
+        int[] expiresAt = new int[count];
+        int size = 0;
+
+        for (int i = 0; i < count; i++) {
+            int address = (int) (packed[i] >>> 32) ^ 0x80000000;
+            int expiry = (int) packed[i];
+            // Same address sorts by ascending expiry, so the last one wins
+            if (size > 0 && addresses[size - 1] == address) {
+                expiresAt[size - 1] = expiry;
+            } else {
+                addresses[size] = address;
+                expiresAt[size] = expiry;
+                size++;
+            }
+        }
+
+        return new Ipv4ExpiryTable(Arrays.copyOf(addresses, size), Arrays.copyOf(expiresAt, size));
+    }
+
+    /**
+     * Union of this table and another, as a new table; shared addresses keep the later expiry.
+     */
+    public Ipv4ExpiryTable merge(Ipv4ExpiryTable other) {
+        if (other.size() == 0) {
+            return this;
+        }
+        if (size() == 0) {
+            return other;
+        }
+
+        int[] mergedAddresses = new int[size() + other.size()];
+        int[] mergedExpiresAt = new int[mergedAddresses.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < size() || j < other.size()) {
+            boolean takeThis = j >= other.size()
+                    || (i < size() && Integer.compareUnsigned(addresses[i], other.addresses[j]) <= 0);
+            int address = takeThis ? addresses[i] : other.addresses[j];
+            int expiry = takeThis ? expiresAt[i++] : other.expiresAt[j++];
+
+            if (size > 0 && mergedAddresses[size - 1] == address) {
+                if (Integer.compareUnsigned(expiry, mergedExpiresAt[size - 1]) > 0) {
+                    mergedExpiresAt[size - 1] = expiry;
+                }
+            } else {
+                mergedAddresses[size] = address;
+                mergedExpiresAt[size] = expiry;
+                size++;
+            }
+        }
+
+        return new Ipv4ExpiryTable(Arrays.copyOf(mergedAddresses, size), Arrays.copyOf(mergedExpiresAt, size));
+    }
+
+    /**
+     * True if the address is listed and its expiry is after the given time.
+     */
+    public boolean isActive(long address, long nowEpochSeconds) {
+        if (address < 0) {
+            return false;
+        }
+        int key = (int) address;
+        int low = 0;
+        int high = addresses.length - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Integer.compareUnsigned(addresses[mid], key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return Integer.toUnsignedLong(expiresAt[mid]) > nowEpochSeconds;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return addresses.length;
+    }
+}
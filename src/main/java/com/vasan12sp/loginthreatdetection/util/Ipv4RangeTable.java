@@ -0,0 +1,113 @@
+package com.vasan12sp.loginthreatdetection.util;
+
+import java.util.Arrays;
+
+
+/**
+ * Immutable, sorted table of non-overlapping IPv4 ranges.
+ * Starts and ends are stored as unsigned ints in two parallel arrays (8 bytes per range),
+ * and lookups are a binary search, so millions of ranges stay compact and
+ * each check allocates nothing.
+ */
+public final class Ipv4RangeTable {
+
+    public static final Ipv4RangeTable EMPTY = new Ipv4RangeTable(new int[0], new int[0]);
+
+    private final int[] starts;
+    private final int[] ends;
+
+    private Ipv4RangeTable(int[] starts, int[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * Build a table from packed CIDR values (see {@link Ipv4#parseCidr}).
+     * The array is sorted in place; overlapping and adjacent ranges are merged.
+     */
+    public static Ipv4RangeTable fromCidrs(long[] packedCidrs, int count) {
+        Arrays.sort(packedCidrs, 0, count);
+
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int size = 0;
+
+        for (int i = 0; i < count; i++) {
+            long first = Ipv4.firstAddress(packedCidrs[i]);
+            long last = Ipv4.lastAddress(packedCidrs[i]);
+
+            if (size > 0 && first <= Integer.toUnsignedLong(ends[size - 1]) + 1) {
+                if (last > Integer.toUnsignedLong(ends[size - 1])) {
+                    ends[size - 1] = (int) last;
+                }
+            } else {
+                starts[size] = (int) first;
+                ends[size] = (int) last;
+                size++;
+            }
+        }
+
+        return new Ipv4RangeTable(Arrays.copyOf(starts, size), Arrays.copyOf(ends, size));
+    }
+
+    /**
+     * Union of this table and another, as a new table.
+     */
+    public Ipv4RangeTable merge(Ipv4RangeTable other) {
+        if (other.size() == 0) {
+            return this;
+        }
+        if (size() == 0) {
+            return other;
+        }
+
+        int[] mergedStarts = new int[size() + other.size()];
+        int[] mergedEnds = new int[mergedStarts.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < size() || j < other.size()) {
+            boolean takeThis = j >= other.size()
+                    || (i < size() && Integer.compareUnsigned(starts[i], other.starts[j]) <= 0);
+            int start = takeThis ? starts[i] : other.starts[j];
+            int end = takeThis ? ends[i++] : other.ends[j++];
+
+            if (size > 0 && Integer.toUnsignedLong(start) <= Integer.toUnsignedLong(mergedEnds[size - 1]) + 1) {
+                if (Integer.compareUnsigned(end, mergedEnds[size - 1]) > 0) {
+                    mergedEnds[size - 1] = end;
+                }
+            } else {
+                mergedStarts[size] = start;
+                mergedEnds[size] = end;
+                size++;
+            }
+        }
+
+        return new Ipv4RangeTable(Arrays.copyOf(mergedStarts, size), Arrays.copyOf(mergedEnds, size));
+    }
+
+    public boolean contains(long address) {
+        if (address < 0) {
+            return false;
+        }
+        int key = (int) address;
+        int low = 0;
+        int high = starts.length - 1;
+
+        // Find the last range whose start is <= address
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Integer.compareUnsigned(starts[mid], key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high >= 0 && Integer.compareUnsigned(key, ends[high]) <= 0;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+}
@@ -0,0 +1,36 @@
+package com.vasan12sp.loginthreatdetection.util;
+
+import java.util.Arrays;
+
+
+/**
+ * Growable array of primitive longs, used to collect millions of packed
+ * addresses without boxing each one.
+ */
+public final class LongArray {
+
+    private long[] values;
+    private int size;
+
+    public LongArray(int initialCapacity) {
+        this.values = new long[Math.max(initialCapacity, 16)];
+    }
+
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length + (values.length >> 1));
+        }
+        values[size++] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Backing array; only the first {@link #size()} elements are meaningful.
+     */
+    public long[] array() {
+        return values;
+    }
+}
@@ -0,0 +1,239 @@
+package com.vasan12sp.loginthreatdetection.service;
+
+import com.vasan12sp.loginthreatdetection.repository.BlockedIpRepository;
+import com.vasan12sp.loginthreatdetection.service.BlockEnforcementService.Mode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BlockEnforcementServiceTest {
+
+    private static final long OPEN_MILLIS = 50;
+
+    private final BlockedIpRepository repository = mock(BlockedIpRepository.class);
+    private final BlocklistCache cache = new BlocklistCache(null, null, 1000, 30);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private BlockEnforcementService service;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    private BlockEnforcementService service(long budgetMillis, int failureThreshold) {
+        service = new BlockEnforcementService(repository, cache, new SimpleMeterRegistry(),
+                budgetMillis, failureThreshold, OPEN_MILLIS, 4, 4);
+        return service;
+    }
+
+    private void failing(String ip) {
+        when(repository.isIpBlocked(eq(ip), anyLong())).thenThrow(new IllegalStateException("connection refused"));
+    }
+
+    private void answering(String ip, boolean blocked) {
+        when(repository.isIpBlocked(eq(ip), anyLong())).thenReturn(blocked);
+    }
+
+    /**
+     * The lookup signals that it started, then waits for the gate before answering (or failing).
+     */
+    private void gated(String ip, CountDownLatch started, CountDownLatch gate, boolean fail) {
+        when(repository.isIpBlocked(eq(ip), anyLong())).thenAnswer(invocation -> {
+            started.countDown();
+            gate.await();
+            if (fail) {
+                throw new IllegalStateException("query failed");
+            }
+            return true;
+        });
+    }
+
+    private void open(String failingIp, int failureThreshold) throws InterruptedException {
+        failing(failingIp);
+        for (int i = 0; i < failureThreshold; i++) {
+            service.isBlocked(failingIp);
+        }
+        assertEquals(Mode.OPEN, service.getMode());
+        Thread.sleep(OPEN_MILLIS + 20);
+    }
+
+    @Test
+    void databaseAnswersWhileClosed() {
+        service(1000, 3);
+        answering("1.1.1.1", true);
+        answering("2.2.2.2", false);
+
+        assertTrue(service.isBlocked("1.1.1.1"));
+        assertFalse(service.isBlocked("2.2.2.2"));
+        assertEquals(Mode.CLOSED, service.getMode());
+    }
+
+    @Test
+    void opensAtTheFailureThresholdAndStopsQuerying() {
+        service(1000, 3);
+        failing("1.1.1.1");
+
+        service.isBlocked("1.1.1.1");
+        service.isBlocked("1.1.1.1");
+        assertEquals(Mode.CLOSED, service.getMode());
+
+        service.isBlocked("1.1.1.1");
+        assertEquals(Mode.OPEN, service.getMode());
+
+        // Served from the snapshot without touching the database
+        assertFalse(service.isBlocked("1.1.1.1"));
+        verify(repository, times(3)).isIpBlocked(eq("1.1.1.1"), anyLong());
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        service(1000, 2);
+        failing("1.1.1.1");
+        answering("2.2.2.2", false);
+
+        service.isBlocked("1.1.1.1");
+        service.isBlocked("2.2.2.2");
+        service.isBlocked("1.1.1.1");
+        assertEquals(Mode.CLOSED, service.getMode());
+    }
+
+    @Test
+    void queriesOverBudgetCountAsFailures() {
+        service(20, 2);
+        CountDownLatch gate = new CountDownLatch(1);
+        gated("1.1.1.1", new CountDownLatch(2), gate, false);
+
+        assertFalse(service.isBlocked("1.1.1.1"));
+        assertFalse(service.isBlocked("1.1.1.1"));
+        assertEquals(Mode.OPEN, service.getMode());
+        gate.countDown();
+    }
+
+    @Test
+    void exactlyOneHalfOpenProbeIsLetThrough() throws Exception {
+        service(5000, 1);
+        open("9.9.9.9", 1);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        gated("1.1.1.1", started, gate, false);
+
+        Future<Boolean> probe = callers.submit(() -> service.isBlocked("1.1.1.1"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(Mode.HALF_OPEN, service.getMode());
+
+        // Everyone else is answered from the snapshot while the probe is out
+        for (int i = 0; i < 5; i++) {
+            assertFalse(service.isBlocked("1.1.1.1"));
+        }
+        verify(repository, times(1)).isIpBlocked(eq("1.1.1.1"), anyLong());
+
+        gate.countDown();
+        assertTrue(probe.get(5, TimeUnit.SECONDS));
+        assertEquals(Mode.CLOSED, service.getMode());
+    }
+
+    @Test
+    void failedProbeReopensTheBreaker() throws Exception {
+        service(5000, 1);
+        open("9.9.9.9", 1);
+
+        assertFalse(service.isBlocked("9.9.9.9"));
+        assertEquals(Mode.OPEN, service.getMode());
+    }
+
+    @Test
+    void lateResultsDoNotMoveTheBreaker() throws Exception {
+        service(5000, 1);
+
+        // A normal query started while closed, still running when the breaker opens
+        CountDownLatch lateStarted = new CountDownLatch(1);
+        CountDownLatch lateGate = new CountDownLatch(1);
+        gated("2.2.2.2", lateStarted, lateGate, false);
+        Future<Boolean> late = callers.submit(() -> service.isBlocked("2.2.2.2"));
+        assertTrue(lateStarted.await(5, TimeUnit.SECONDS));
+
+        open("9.9.9.9", 1);
+
+        CountDownLatch probeStarted = new CountDownLatch(1);
+        CountDownLatch probeGate = new CountDownLatch(1);
+        gated("1.1.1.1", probeStarted, probeGate, true);
+        Future<Boolean> probe = callers.submit(() -> service.isBlocked("1.1.1.1"));
+        assertTrue(probeStarted.await(5, TimeUnit.SECONDS));
+
+        // The late success must not close the breaker while the probe is out
+        lateGate.countDown();
+        late.get(5, TimeUnit.SECONDS);
+        assertEquals(Mode.HALF_OPEN, service.getMode());
+
+        // Only the probe's failure decides
+        probeGate.countDown();
+        assertFalse(probe.get(5, TimeUnit.SECONDS));
+        assertEquals(Mode.OPEN, service.getMode());
+    }
+
+    @Test
+    void lateFailuresDoNotExtendTheOpenPeriod() throws Exception {
+        service(5000, 1);
+
+        CountDownLatch lateStarted = new CountDownLatch(1);
+        CountDownLatch lateGate = new CountDownLatch(1);
+        gated("2.2.2.2", lateStarted, lateGate, true);
+        Future<Boolean> late = callers.submit(() -> service.isBlocked("2.2.2.2"));
+        assertTrue(lateStarted.await(5, TimeUnit.SECONDS));
+
+        open("9.9.9.9", 1);
+
+        // Fails after the cool-down has elapsed; it must not restart it
+        lateGate.countDown();
+        late.get(5, TimeUnit.SECONDS);
+
+        answering("1.1.1.1", false);
+        assertFalse(service.isBlocked("1.1.1.1"));
+        verify(repository).isIpBlocked(eq("1.1.1.1"), anyLong());
+        assertEquals(Mode.CLOSED, service.getMode());
+    }
+
+    @Test
+    void interruptedProbeHandsBackItsToken() throws Exception {
+        service(5000, 1);
+        open("9.9.9.9", 1);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        gated("1.1.1.1", started, gate, false);
+
+        Future<Boolean> probe = callers.submit(() -> service.isBlocked("1.1.1.1"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        probe.cancel(true);
+
+        // No verdict from the interrupted probe: still half-open, and the next caller probes
+        answering("3.3.3.3", false);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.getMode() != Mode.CLOSED && System.nanoTime() < deadline) {
+            service.isBlocked("3.3.3.3");
+            Thread.sleep(5);
+        }
+        assertEquals(Mode.CLOSED, service.getMode());
+        gate.countDown();
+    }
+}
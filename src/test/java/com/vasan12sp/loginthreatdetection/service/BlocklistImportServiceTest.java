@@ -0,0 +1,117 @@
+package com.vasan12sp.loginthreatdetection.service;
+
+import com.vasan12sp.loginthreatdetection.util.Ipv4;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BlocklistImportServiceTest {
+
+    private final long[] lineCounts = new long[2];
+
+    private List<String> scan(String feed, int bufferSize, int minPrefixLength) throws Exception {
+        List<String> entries = new ArrayList<>();
+        BlocklistImportService.scanFeed(stream(feed), bufferSize, minPrefixLength, lineCounts,
+                cidr -> entries.add(Ipv4.formatCidr(cidr)));
+        return entries;
+    }
+
+    private List<String> scan(String feed, int bufferSize) throws Exception {
+        return scan(feed, bufferSize, 0);
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void parsesEntriesCommentsAndBlankLines() throws Exception {
+        List<String> entries = scan("# header\n1.2.3.4\n\n10.0.0.0/8 ; inline\r\n  5.6.7.8\tfoo\n; note\n", 1024);
+        assertEquals(List.of("1.2.3.4", "10.0.0.0/8", "5.6.7.8"), entries);
+        assertEquals(6, lineCounts[0]);
+        assertEquals(0, lineCounts[1]);
+    }
+
+    @Test
+    void countsInvalidEntriesAsSkipped() throws Exception {
+        List<String> entries = scan("1.2.3.4\nnot-an-ip\n2001:db8::1\n300.1.1.1\n", 1024);
+        assertEquals(List.of("1.2.3.4"), entries);
+        assertEquals(4, lineCounts[0]);
+        assertEquals(3, lineCounts[1]);
+    }
+
+    @Test
+    void canonicalizesHostBits() throws Exception {
+        assertEquals(List.of("192.168.0.0/16"), scan("192.168.77.1/16\n", 1024));
+    }
+
+    @Test
+    void lastLineWithoutNewline() throws Exception {
+        assertEquals(List.of("1.1.1.1", "2.2.2.2"), scan("1.1.1.1\n2.2.2.2", 1024));
+        assertEquals(2, lineCounts[0]);
+    }
+
+    @Test
+    void emptyFeed() throws Exception {
+        assertEquals(List.of(), scan("", 16));
+        assertEquals(0, lineCounts[0]);
+    }
+
+    @Test
+    void carriesLinesAcrossBufferBoundaries() throws Exception {
+        String feed = "1.1.1.1\n22.22.22.22\n123.123.123.123\n4.4.4.4/30\n5.5.5.5";
+        List<String> expected = List.of("1.1.1.1", "22.22.22.22", "123.123.123.123", "4.4.4.4/30", "5.5.5.5");
+
+        // Every buffer size from "just fits the longest line" upwards splits lines differently
+        for (int bufferSize = 17; bufferSize <= feed.length() + 1; bufferSize++) {
+            lineCounts[0] = 0;
+            lineCounts[1] = 0;
+            assertEquals(expected, scan(feed, bufferSize), "buffer size " + bufferSize);
+            assertEquals(5, lineCounts[0], "buffer size " + bufferSize);
+            assertEquals(0, lineCounts[1], "buffer size " + bufferSize);
+        }
+    }
+
+    @Test
+    void carriesFromShortReads() throws Exception {
+        // An InputStream that returns one byte per read exercises the carry on every call
+        InputStream trickle = new ByteArrayInputStream("9.9.9.9\n8.8.8.8".getBytes(StandardCharsets.US_ASCII)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+        List<String> entries = new ArrayList<>();
+        BlocklistImportService.scanFeed(trickle, 16, 0, lineCounts, cidr -> entries.add(Ipv4.formatCidr(cidr)));
+        assertEquals(List.of("9.9.9.9", "8.8.8.8"), entries);
+    }
+
+    @Test
+    void overlongLineIsSkippedOnceAndItsTailIgnored() throws Exception {
+        // The comment is longer than the buffer and ends in something that looks like an address
+        String feed = "1.1.1.1\n# this comment is much longer than the buffer 6.6.6.6\n2.2.2.2\n";
+        assertEquals(List.of("1.1.1.1", "2.2.2.2"), scan(feed, 16));
+        assertEquals(3, lineCounts[0]);
+        assertEquals(1, lineCounts[1]);
+    }
+
+    @Test
+    void overlongFinalLineWithoutNewline() throws Exception {
+        assertEquals(List.of("1.1.1.1"), scan("1.1.1.1\nxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx", 16));
+        assertEquals(2, lineCounts[0]);
+        assertEquals(1, lineCounts[1]);
+    }
+
+    @Test
+    void rejectsRangesBroaderThanMinimumPrefix() throws Exception {
+        List<String> entries = scan("0.0.0.0/0\n10.0.0.0/7\n10.0.0.0/8\n1.2.3.4\n", 1024, 8);
+        assertEquals(List.of("10.0.0.0/8", "1.2.3.4"), entries);
+        assertEquals(2, lineCounts[1]);
+    }
+}
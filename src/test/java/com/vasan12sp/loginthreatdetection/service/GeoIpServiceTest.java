@@ -0,0 +1,149 @@
+package com.vasan12sp.loginthreatdetection.service;
+
+import com.vasan12sp.loginthreatdetection.model.LoginEvent;
+import com.vasan12sp.loginthreatdetection.util.Ipv4;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeoIpServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private record Range(String start, String end, float lat, float lon) {
+    }
+
+    private Path table(String name, Range... ranges) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 16 * ranges.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("GEO1".getBytes(StandardCharsets.US_ASCII)).putInt(ranges.length);
+        for (Range range : ranges) {
+            buffer.putInt((int) Ipv4.parse(range.start())).putInt((int) Ipv4.parse(range.end()))
+                    .putFloat(range.lat()).putFloat(range.lon());
+        }
+        return Files.write(dir.resolve(name), buffer.array());
+    }
+
+    private GeoIpService service(Range... ranges) throws Exception {
+        return new GeoIpService(table("geoip.bin", ranges).toString());
+    }
+
+    private static int find(GeoIpService service, String ip) {
+        return service.find(Ipv4.parse(ip));
+    }
+
+    @Test
+    void findsRangesIncludingTheUpperHalfOfTheAddressSpace() throws Exception {
+        GeoIpService service = service(
+                new Range("1.0.0.0", "1.0.0.255", 10f, 20f),
+                new Range("100.0.0.0", "127.255.255.255", 30f, 40f),
+                new Range("128.0.0.0", "128.0.0.0", 50f, 60f),
+                new Range("200.1.0.0", "200.1.255.255", -33.5f, 151.25f),
+                new Range("255.255.255.0", "255.255.255.255", 70f, 80f));
+
+        assertEquals(0, find(service, "1.0.0.0"));
+        assertEquals(0, find(service, "1.0.0.255"));
+        assertEquals(1, find(service, "127.255.255.255"));
+        assertEquals(2, find(service, "128.0.0.0"));
+        assertEquals(3, find(service, "200.1.0.0"));
+        assertEquals(3, find(service, "200.1.255.255"));
+        assertEquals(4, find(service, "255.255.255.255"));
+        assertEquals(-33.5f, service.latitude(3));
+        assertEquals(151.25f, service.longitude(3));
+    }
+
+    @Test
+    void addressesInGapsOrOutsideTheTableAreNotFound() throws Exception {
+        GeoIpService service = service(
+                new Range("1.0.0.0", "1.0.0.255", 10f, 20f),
+                new Range("128.0.0.1", "128.0.0.1", 50f, 60f),
+                new Range("200.1.0.0", "200.1.255.255", 30f, 40f));
+
+        assertEquals(-1, find(service, "0.0.0.0"));
+        assertEquals(-1, find(service, "0.255.255.255"));
+        assertEquals(-1, find(service, "1.0.1.0"));
+        assertEquals(-1, find(service, "127.255.255.255"));
+        assertEquals(-1, find(service, "128.0.0.0"));
+        assertEquals(-1, find(service, "128.0.0.2"));
+        assertEquals(-1, find(service, "200.0.255.255"));
+        assertEquals(-1, find(service, "200.2.0.0"));
+        assertEquals(-1, find(service, "255.255.255.255"));
+        assertEquals(-1, service.find(-1));
+    }
+
+    @Test
+    void emptyTableFindsNothing() throws Exception {
+        GeoIpService service = service();
+        assertTrue(service.isEnabled());
+        assertEquals(-1, find(service, "1.2.3.4"));
+        assertEquals(-1, find(service, "200.0.0.1"));
+    }
+
+    @Test
+    void enrichSetsCoordinatesOnlyForCoveredAddresses() throws Exception {
+        GeoIpService service = service(new Range("200.1.0.0", "200.1.255.255", 48.5f, 2.25f));
+
+        LoginEvent covered = new LoginEvent("200.1.2.3", "FAILURE", Instant.now());
+        service.enrich(covered);
+        assertEquals(48.5, covered.getLat());
+        assertEquals(2.25, covered.getLon());
+
+        LoginEvent uncovered = new LoginEvent("10.0.0.1", "FAILURE", Instant.now());
+        service.enrich(uncovered);
+        assertNull(uncovered.getLat());
+
+        LoginEvent ipv6 = new LoginEvent("2001:db8::1", "FAILURE", Instant.now());
+        service.enrich(ipv6);
+        assertNull(ipv6.getLat());
+    }
+
+    @Test
+    void blankPathDisablesEnrichment() {
+        GeoIpService service = new GeoIpService("");
+        assertFalse(service.isEnabled());
+        assertEquals(-1, find(service, "1.2.3.4"));
+    }
+
+    @Test
+    void rejectsBadMagic() throws Exception {
+        Path path = table("bad.bin", new Range("1.0.0.0", "1.0.0.255", 0f, 0f));
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[0] = 'X';
+        Files.write(path, bytes);
+        assertThrows(IllegalStateException.class, () -> new GeoIpService(path.toString()));
+    }
+
+    @Test
+    void rejectsSizeThatDoesNotMatchTheRecordCount() throws Exception {
+        Path path = table("short.bin", new Range("1.0.0.0", "1.0.0.255", 0f, 0f));
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IllegalStateException.class, () -> new GeoIpService(path.toString()));
+    }
+
+    @Test
+    void rejectsFileShorterThanTheHeader() throws Exception {
+        Path path = Files.write(dir.resolve("tiny.bin"), new byte[]{'G', 'E', 'O'});
+        assertThrows(IllegalStateException.class, () -> new GeoIpService(path.toString()));
+    }
+
+    @Test
+    void missingFileFailsStartup() {
+        assertThrows(UncheckedIOException.class,
+                () -> new GeoIpService(dir.resolve("missing.bin").toString()));
+    }
+}
@@ -0,0 +1,178 @@
+package com.vasan12sp.loginthreatdetection.service;
+
+import com.vasan12sp.loginthreatdetection.model.LoginEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KafkaProducerServiceTest {
+
+    private static final long WINDOW_MILLIS = 300;
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, String> kafkaTemplate = mock(KafkaTemplate.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    KafkaProducerServiceTest() {
+        when(kafkaTemplate.send(anyString(), any(), anyString())).thenReturn(new CompletableFuture<>());
+        // Serialize once up front so mapper start-up does not eat into the short windows
+        objectMapper.readValue(objectMapper.writeValueAsString(event("0.0.0.0", "FAILURE", 0, null)), LoginEvent.class);
+    }
+
+    private KafkaProducerService producer(boolean aggregation, int passThrough, int maxTrackedIps) {
+        return new KafkaProducerService(kafkaTemplate, objectMapper, new GeoIpService(""), new SimpleMeterRegistry(),
+                aggregation, WINDOW_MILLIS, passThrough, 2, maxTrackedIps);
+    }
+
+    private static LoginEvent event(String ip, String status, int second, String username) {
+        return new LoginEvent(ip, status, T0.plusSeconds(second), username);
+    }
+
+    private List<LoginEvent> sent() {
+        ArgumentCaptor<String> payloads = ArgumentCaptor.forClass(String.class);
+        verify(kafkaTemplate, atLeast(0)).send(eq(KafkaProducerService.TOPIC), anyString(), payloads.capture());
+        return payloads.getAllValues().stream()
+                .map(json -> objectMapper.readValue(json, LoginEvent.class))
+                .toList();
+    }
+
+    @Test
+    void forwardsEverythingWhenAggregationIsDisabled() {
+        KafkaProducerService producer = producer(false, 1, 100);
+        for (int i = 0; i < 3; i++) {
+            producer.sendLoginEvent(event("1.1.1.1", "FAILURE", i, "alice"));
+        }
+
+        List<LoginEvent> sent = sent();
+        assertEquals(3, sent.size());
+        sent.forEach(event -> assertNull(event.getCount()));
+    }
+
+    @Test
+    void passesThroughTheFirstFailuresAndSummarizesTheRestWhenTheWindowCloses() throws Exception {
+        KafkaProducerService producer = producer(true, 2, 100);
+        String[] usernames = {"alice", "bob", "carol", "dave", "erin"};
+        for (int i = 0; i < usernames.length; i++) {
+            producer.sendLoginEvent(event("1.1.1.1", "FAILURE", i, usernames[i]));
+        }
+
+        assertEquals(2, sent().size());
+        producer.flushExpiredWindows();
+        assertEquals(2, sent().size());  // window still open
+
+        Thread.sleep(WINDOW_MILLIS + 20);
+        producer.flushExpiredWindows();
+
+        List<LoginEvent> sent = sent();
+        assertEquals(3, sent.size());
+        assertEquals("alice", sent.get(0).getUsername());
+        assertEquals("bob", sent.get(1).getUsername());
+
+        LoginEvent summary = sent.get(2);
+        assertEquals("FAILURE", summary.getStatus());
+        assertEquals("1.1.1.1", summary.getIp());
+        assertEquals(3, summary.getCount());
+        assertEquals(T0.plusSeconds(2), summary.getFirstTimestamp());
+        assertEquals(T0.plusSeconds(4), summary.getTimestamp());
+        assertEquals("erin", summary.getUsername());
+        assertEquals(List.of("carol", "dave"), summary.getUsernames());  // capped at max-usernames
+    }
+
+    @Test
+    void successFlushesThePendingSummaryFirst() {
+        KafkaProducerService producer = producer(true, 1, 100);
+        producer.sendLoginEvent(event("1.1.1.1", "FAILURE", 0, "alice"));
+        producer.sendLoginEvent(event("1.1.1.1", "FAILURE", 1, "alice"));
+        producer.sendLoginEvent(event("1.1.1.1", "FAILURE", 2, "alice"));
+        producer.sendLoginEvent(event("1.1.1.1", "SUCCESS", 3, "alice"));
+
+        List<LoginEvent> sent = sent();
+        assertEquals(3, sent.size());
+        assertNull(sent.get(0).getCount());
+        assertEquals(2, sent.get(1).getCount());
+        assertEquals("SUCCESS", sent.get(2).getStatus());
+
+        // The window is gone, so nothing is sent twice
+        producer.flushAllWindows();
+        assertEquals(3, sent().size());
+    }
+
+    @Test
+    void closedWindowIsSummarizedWhenTheNextFailureArrives() throws Exception {
+        KafkaProducerService producer = producer(true, 1, 100);
+        producer.sendLoginEvent(event("1.1.1.1", "FAILURE", 0, "alice"));
+        producer.sendLoginEvent(event("1.1.1.1", "FAILURE", 1, "alice"));
+
+        Thread.sleep(WINDOW_MILLIS + 20);
+        producer.sendLoginEvent(event("1.1.1.1", "FAILURE", 2, "alice"));
+
+        List<LoginEvent> sent = sent();
+        assertEquals(3, sent.size());
+        assertEquals(1, sent.get(1).getCount());
+        assertNull(sent.get(2).getCount());  // first failure of the new window passes through
+    }
+
+    @Test
+    void fallsBackToForwardingWhenTooManyIpsAreTracked() {
+        KafkaProducerService producer = producer(true, 1, 1);
+        producer.sendLoginEvent(event("1.1.1.1", "FAILURE", 0, "alice"));
+        for (int i = 0; i < 3; i++) {
+            producer.sendLoginEvent(event("2.2.2.2", "FAILURE", i, "bob"));
+        }
+
+        List<LoginEvent> sent = sent();
+        assertEquals(4, sent.size());
+        assertEquals(3, sent.stream().filter(event -> "2.2.2.2".equals(event.getIp())).count());
+        sent.forEach(event -> assertNull(event.getCount()));
+    }
+
+    @Test
+    void onlyUnknownShedsAreFoldedIntoFailures() {
+        KafkaProducerService producer = producer(true, 0, 100);
+        LoginEvent trusted = event("1.1.1.1", "SHED", 0, "alice");
+        trusted.setPriority("TRUSTED");
+        LoginEvent unknown = event("1.1.1.1", "SHED", 1, "mallory");
+        unknown.setPriority("UNKNOWN");
+
+        producer.sendLoginEvent(trusted);
+        producer.sendLoginEvent(unknown);
+        producer.flushAllWindows();
+
+        List<LoginEvent> sent = sent();
+        assertEquals(2, sent.size());
+        assertEquals("SHED", sent.get(0).getStatus());
+        assertEquals("FAILURE", sent.get(1).getStatus());
+        assertEquals(1, sent.get(1).getCount());
+    }
+
+    @Test
+    void shutdownSendsOpenWindows() {
+        KafkaProducerService producer = producer(true, 0, 100);
+        producer.sendLoginEvent(event("1.1.1.1", "FAILURE", 0, "alice"));
+        producer.sendLoginEvent(event("2.2.2.2", "FAILURE", 0, "bob"));
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), anyString());
+
+        producer.flushAllWindows();
+
+        assertEquals(2, sent().size());
+        verify(kafkaTemplate).flush();
+    }
+}
@@ -0,0 +1,100 @@
+package com.vasan12sp.loginthreatdetection.service;
+
+import com.vasan12sp.loginthreatdetection.service.PasswordVerificationExecutor.Priority;
+import com.vasan12sp.loginthreatdetection.service.PasswordVerificationExecutor.VerificationRejectedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordVerificationExecutorTest {
+
+    // One thread, three queue slots, two of the four slots reserved for trusted clients
+    private final PasswordVerificationExecutor verifier = new PasswordVerificationExecutor(1, 3, 2, 1440, 100);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final List<String> ran = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        verifier.shutdown();
+    }
+
+    private Callable<Authentication> task(String name) {
+        return () -> {
+            ran.add(name);
+            return new UsernamePasswordAuthenticationToken(name, null);
+        };
+    }
+
+    private Future<Authentication> submit(Callable<Authentication> task, Priority priority) {
+        return callers.submit(() -> verifier.verify(task, priority));
+    }
+
+    private void awaitQueued(int tasks) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (verifier.queuedTasks() < tasks) {
+            assertTrue(System.nanoTime() < deadline, "task was not queued in time");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void trustedTaskRunsWhileUnknownTrafficSaturatesThePool() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Authentication> running = submit(() -> {
+            started.countDown();
+            release.await();
+            return task("unknown-1").call();
+        }, Priority.UNKNOWN);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Future<Authentication> queued = submit(task("unknown-2"), Priority.UNKNOWN);
+        awaitQueued(1);
+
+        // Unknown traffic has used its share; the reserved slots stay free
+        assertThrows(VerificationRejectedException.class,
+                () -> verifier.verify(task("unknown-3"), Priority.UNKNOWN));
+
+        Future<Authentication> trusted = submit(task("trusted"), Priority.TRUSTED);
+        awaitQueued(2);
+
+        release.countDown();
+        assertEquals("trusted", trusted.get(5, TimeUnit.SECONDS).getName());
+        running.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+
+        // The trusted task was queued after unknown-2 but ran ahead of it
+        assertEquals(List.of("unknown-1", "trusted", "unknown-2"), ran);
+    }
+
+    @Test
+    void slotsAreReturnedWhenTasksComplete() {
+        for (int i = 0; i < 10; i++) {
+            assertEquals("unknown", verifier.verify(task("unknown"), Priority.UNKNOWN).getName());
+        }
+        assertEquals("trusted", verifier.verify(task("trusted"), Priority.TRUSTED).getName());
+    }
+
+    @Test
+    void taskExceptionsAreRethrownAsIs() {
+        IllegalArgumentException failure = new IllegalArgumentException("bad credentials");
+        assertEquals(failure, assertThrows(IllegalArgumentException.class,
+                () -> verifier.verify(() -> { throw failure; }, Priority.UNKNOWN)));
+    }
+}
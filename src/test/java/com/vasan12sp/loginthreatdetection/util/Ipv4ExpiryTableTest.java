@@ -0,0 +1,81 @@
+package com.vasan12sp.loginthreatdetection.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Ipv4ExpiryTableTest {
+
+    private static final long NOW = 1_800_000_000L;
+
+    private static Ipv4ExpiryTable table(Object... ipsAndExpiries) {
+        long[] packed = new long[ipsAndExpiries.length / 2];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = Ipv4ExpiryTable.pack(Ipv4.parse((String) ipsAndExpiries[2 * i]), (Long) ipsAndExpiries[2 * i + 1]);
+        }
+        return Ipv4ExpiryTable.fromPacked(packed, packed.length);
+    }
+
+    private static boolean active(Ipv4ExpiryTable table, String ip) {
+        return table.isActive(Ipv4.parse(ip), NOW);
+    }
+
+    @Test
+    void emptyTableHasNothingActive() {
+        assertEquals(0, Ipv4ExpiryTable.EMPTY.size());
+        assertFalse(active(Ipv4ExpiryTable.EMPTY, "1.2.3.4"));
+        assertFalse(Ipv4ExpiryTable.EMPTY.isActive(-1, NOW));
+    }
+
+    @Test
+    void honoursPerAddressExpiry() {
+        Ipv4ExpiryTable table = table("1.2.3.4", NOW + 60, "5.6.7.8", NOW - 60, "9.9.9.9", NOW);
+        assertEquals(3, table.size());
+        assertTrue(active(table, "1.2.3.4"));
+        assertFalse(active(table, "5.6.7.8"));
+        assertFalse(active(table, "9.9.9.9"));
+        assertFalse(active(table, "1.2.3.5"));
+    }
+
+    @Test
+    void duplicateKeepsLatestExpiry() {
+        Ipv4ExpiryTable table = table("1.2.3.4", NOW + 60, "1.2.3.4", NOW - 60);
+        assertEquals(1, table.size());
+        assertTrue(active(table, "1.2.3.4"));
+    }
+
+    @Test
+    void handlesUnsignedUpperHalf() {
+        Ipv4ExpiryTable table = table("200.0.0.1", NOW + 60, "255.255.255.255", NOW + 60, "100.0.0.1", NOW + 60);
+        assertTrue(active(table, "200.0.0.1"));
+        assertTrue(active(table, "255.255.255.255"));
+        assertTrue(active(table, "100.0.0.1"));
+        assertFalse(active(table, "150.0.0.1"));
+    }
+
+    @Test
+    void mergeKeepsLaterExpiry() {
+        Ipv4ExpiryTable left = table("1.2.3.4", NOW - 60, "200.0.0.1", NOW + 60);
+        Ipv4ExpiryTable right = table("1.2.3.4", NOW + 60, "8.8.8.8", NOW + 60);
+
+        Ipv4ExpiryTable merged = left.merge(right);
+        assertEquals(3, merged.size());
+        assertTrue(active(merged, "1.2.3.4"));
+        assertTrue(active(merged, "8.8.8.8"));
+        assertTrue(active(merged, "200.0.0.1"));
+
+        // Order does not matter, and inputs are immutable
+        assertTrue(active(right.merge(left), "1.2.3.4"));
+        assertFalse(active(left, "1.2.3.4"));
+    }
+
+    @Test
+    void mergeWithEmptyReturnsSameTable() {
+        Ipv4ExpiryTable table = table("1.1.1.1", NOW + 60);
+        assertSame(table, table.merge(Ipv4ExpiryTable.EMPTY));
+        assertSame(table, Ipv4ExpiryTable.EMPTY.merge(table));
+    }
+}
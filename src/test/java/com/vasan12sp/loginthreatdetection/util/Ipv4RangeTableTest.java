@@ -0,0 +1,106 @@
+package com.vasan12sp.loginthreatdetection.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Ipv4RangeTableTest {
+
+    private static Ipv4RangeTable table(String... cidrs) {
+        long[] packed = new long[cidrs.length];
+        for (int i = 0; i < cidrs.length; i++) {
+            packed[i] = Ipv4.parseCidr(cidrs[i]);
+        }
+        return Ipv4RangeTable.fromCidrs(packed, packed.length);
+    }
+
+    private static boolean contains(Ipv4RangeTable table, String ip) {
+        return table.contains(Ipv4.parse(ip));
+    }
+
+    @Test
+    void emptyTableContainsNothing() {
+        assertEquals(0, Ipv4RangeTable.EMPTY.size());
+        assertFalse(contains(Ipv4RangeTable.EMPTY, "1.2.3.4"));
+        assertFalse(Ipv4RangeTable.EMPTY.contains(-1));
+    }
+
+    @Test
+    void fromCidrsSortsAndMergesOverlaps() {
+        Ipv4RangeTable table = table("10.0.0.0/8", "10.1.0.0/16", "1.2.3.4", "192.168.0.0/24");
+        assertEquals(3, table.size());
+        assertTrue(contains(table, "10.1.2.3"));
+        assertTrue(contains(table, "10.255.255.255"));
+        assertTrue(contains(table, "1.2.3.4"));
+        assertFalse(contains(table, "1.2.3.5"));
+        assertTrue(contains(table, "192.168.0.255"));
+        assertFalse(contains(table, "192.168.1.0"));
+        assertFalse(contains(table, "11.0.0.0"));
+    }
+
+    @Test
+    void fromCidrsMergesAdjacentRanges() {
+        Ipv4RangeTable table = table("1.2.3.4", "1.2.3.5", "1.2.3.6/31");
+        assertEquals(1, table.size());
+        assertTrue(contains(table, "1.2.3.7"));
+        assertFalse(contains(table, "1.2.3.3"));
+        assertFalse(contains(table, "1.2.3.8"));
+    }
+
+    @Test
+    void fromCidrsDropsDuplicates() {
+        assertEquals(1, table("8.8.8.8", "8.8.8.8", "8.8.8.8").size());
+    }
+
+    @Test
+    void handlesUnsignedUpperHalf() {
+        Ipv4RangeTable table = table("200.0.0.0/8", "255.255.255.255", "100.0.0.0/8");
+        assertEquals(3, table.size());
+        assertTrue(contains(table, "200.1.1.1"));
+        assertTrue(contains(table, "255.255.255.255"));
+        assertTrue(contains(table, "100.0.0.1"));
+        assertFalse(contains(table, "150.0.0.1"));
+        assertFalse(contains(table, "255.255.255.254"));
+    }
+
+    @Test
+    void wholeSpace() {
+        Ipv4RangeTable table = table("0.0.0.0/0");
+        assertTrue(contains(table, "0.0.0.0"));
+        assertTrue(contains(table, "255.255.255.255"));
+    }
+
+    @Test
+    void mergeUnitesTables() {
+        Ipv4RangeTable left = table("10.0.0.0/24", "200.0.0.0/8");
+        Ipv4RangeTable right = table("10.0.1.0/24", "150.0.0.1");
+
+        Ipv4RangeTable merged = left.merge(right);
+        assertEquals(3, merged.size());  // the two /24s are adjacent
+        assertTrue(contains(merged, "10.0.1.200"));
+        assertTrue(contains(merged, "150.0.0.1"));
+        assertTrue(contains(merged, "200.9.9.9"));
+        assertFalse(contains(merged, "10.0.2.0"));
+
+        // Inputs are immutable
+        assertFalse(contains(left, "150.0.0.1"));
+        assertEquals(2, right.size());
+    }
+
+    @Test
+    void mergeWithContainedRange() {
+        Ipv4RangeTable merged = table("10.0.0.0/8").merge(table("10.5.0.0/16"));
+        assertEquals(1, merged.size());
+        assertTrue(contains(merged, "10.200.0.0"));
+    }
+
+    @Test
+    void mergeWithEmptyReturnsSameTable() {
+        Ipv4RangeTable table = table("1.1.1.1");
+        assertSame(table, table.merge(Ipv4RangeTable.EMPTY));
+        assertSame(table, Ipv4RangeTable.EMPTY.merge(table));
+    }
+}
@@ -0,0 +1,80 @@
+package com.vasan12sp.loginthreatdetection.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Ipv4Test {
+
+    @Test
+    void parsesDottedQuads() {
+        assertEquals(0L, Ipv4.parse("0.0.0.0"));
+        assertEquals(0xC0A8010AL, Ipv4.parse("192.168.1.10"));
+        assertEquals(0xFFFFFFFFL, Ipv4.parse("255.255.255.255"));
+    }
+
+    @Test
+    void rejectsMalformedAddresses() {
+        assertEquals(-1, Ipv4.parse(null));
+        assertEquals(-1, Ipv4.parse(""));
+        assertEquals(-1, Ipv4.parse("1.2.3"));
+        assertEquals(-1, Ipv4.parse("1.2.3.4.5"));
+        assertEquals(-1, Ipv4.parse("1.2.3.256"));
+        assertEquals(-1, Ipv4.parse("1..2.3"));
+        assertEquals(-1, Ipv4.parse("1.2.3."));
+        assertEquals(-1, Ipv4.parse(" 1.2.3.4"));
+        assertEquals(-1, Ipv4.parse("::1"));
+    }
+
+    @Test
+    void parsesSubSequence() {
+        assertEquals(0x01020304L, Ipv4.parse("xx1.2.3.4yy", 2, 9));
+    }
+
+    @Test
+    void parsesCidrAndClearsHostBits() {
+        long cidr = Ipv4.parseCidr("10.1.2.3/8");
+        assertEquals(8, Ipv4.prefixLength(cidr));
+        assertEquals(0x0A000000L, Ipv4.firstAddress(cidr));
+        assertEquals(0x0AFFFFFFL, Ipv4.lastAddress(cidr));
+        assertEquals("10.0.0.0/8", Ipv4.formatCidr(cidr));
+    }
+
+    @Test
+    void bareAddressIsSlash32() {
+        long cidr = Ipv4.parseCidr("8.8.8.8");
+        assertEquals(32, Ipv4.prefixLength(cidr));
+        assertEquals(Ipv4.firstAddress(cidr), Ipv4.lastAddress(cidr));
+        assertEquals("8.8.8.8", Ipv4.formatCidr(cidr));
+    }
+
+    @Test
+    void handlesPrefixBounds() {
+        long all = Ipv4.parseCidr("1.2.3.4/0");
+        assertEquals(0L, Ipv4.firstAddress(all));
+        assertEquals(0xFFFFFFFFL, Ipv4.lastAddress(all));
+
+        assertEquals(-1, Ipv4.parseCidr("1.2.3.4/33"));
+        assertEquals(-1, Ipv4.parseCidr("1.2.3.4/"));
+        assertEquals(-1, Ipv4.parseCidr("1.2.3.4/1a"));
+        assertEquals(-1, Ipv4.parseCidr("1.2.3.4/008"));
+    }
+
+    @Test
+    void containsChecksRangeBounds() {
+        long cidr = Ipv4.parseCidr("192.168.0.0/16");
+        assertTrue(Ipv4.contains(cidr, Ipv4.parse("192.168.0.0")));
+        assertTrue(Ipv4.contains(cidr, Ipv4.parse("192.168.255.255")));
+        assertFalse(Ipv4.contains(cidr, Ipv4.parse("192.169.0.0")));
+        assertFalse(Ipv4.contains(cidr, Ipv4.parse("192.167.255.255")));
+    }
+
+    @Test
+    void formatsAddress() {
+        assertEquals("203.0.113.7", Ipv4.format(Ipv4.parse("203.0.113.7")));
+        assertTrue(Ipv4.isCidr("10.0.0.0/8"));
+        assertFalse(Ipv4.isCidr("10.0.0.1"));
+    }
+}
@@ -0,0 +1,29 @@
+package com.vasan12sp.loginthreatdetection.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongArrayTest {
+
+    @Test
+    void growsPastInitialCapacity() {
+        LongArray array = new LongArray(0);
+        for (long i = 0; i < 1000; i++) {
+            array.add(i * 3);
+        }
+        assertEquals(1000, array.size());
+        assertTrue(array.array().length >= 1000);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i * 3L, array.array()[i]);
+        }
+    }
+
+    @Test
+    void startsEmpty() {
+        LongArray array = new LongArray(4);
+        assertEquals(0, array.size());
+        assertTrue(array.array().length >= 16);
+    }
+}